@@ -0,0 +1,31 @@
+package my_custom_component;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Throughput of the MyChatter style decision over a mix of own, other and tagged chat lines.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ChatStyleBenchmark {
+    static final String PREFIX = "<Alice>";
+    static final String[] MESSAGES = {
+            "<Alice> - moving the strike group north",
+            "<Bob> - contact bearing 270",
+            "<Alice> - @p2 narrated line for the allied player",
+            "* Movement - 3 new contacts: Fighter 1, Fighter 2, Bomber 3",
+            "<Alice> - @solo umpire note",
+    };
+
+    int next;
+
+    @Benchmark
+    public String chatStyle(){
+        next = (next + 1) % MESSAGES.length;
+        return MyChatter.chatStyle(MESSAGES[next], PREFIX, "Axis");
+    }
+}
@@ -0,0 +1,55 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.command.ChangePiece;
+import VASSAL.tools.SequenceEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// CompressedCommand on a batch of ChangePiece commands of aircraft with plotted routes, like an Advance All with
+// reveals. The wire sizes are printed once per parameter set, the benchmarks time compressing and expanding.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CompressionBenchmark {
+    @Param({"10", "100", "1000"})
+    int pieces;
+
+    String encoded;
+    String payload;
+
+    @Setup
+    public void setup(){
+        var random = new Random(42);
+        var encoder = new YyzCommandEncoder();
+        var se = new SequenceEncoder(GameModule.COMMAND_SEPARATOR);
+        for(var i = 0; i < pieces; i++){
+            var sheet = Fixtures.aircraft("Fighter " + i, i % 2 == 0 ? "Blue" : "Red");
+            var route = Fixtures.route(random, 10);
+            sheet.mySetState(Fixtures.legacyState(200, route));
+            var oldState = sheet.getState();
+            route.consume(2);
+            sheet.mySetState(Fixtures.legacyState(200, route));
+            se.append(encoder.encode(new ChangePiece("piece" + i, oldState, sheet.getState())));
+        }
+        encoded = se.getValue();
+        payload = CompressedCommand.compress(encoded);
+        System.out.printf("%n%d pieces: %,d chars -> %,d chars on the wire (%.1f%%)%n", pieces, encoded.length(),
+                CompressedCommand.ID.length() + payload.length(), 100. * (CompressedCommand.ID.length() + payload.length()) / encoded.length());
+    }
+
+    @Benchmark
+    public String compress(){
+        return CompressedCommand.compress(encoded);
+    }
+
+    @Benchmark
+    public String expand(){
+        return CompressedCommand.expand(payload);
+    }
+}
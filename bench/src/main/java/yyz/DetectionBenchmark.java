@@ -0,0 +1,73 @@
+package yyz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One tryDetectTargets-style scan: every enemy within range of an observer, by walking all pieces or through SpatialGrid.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class DetectionBenchmark {
+    static final int AREA = 10000;
+    static final int RANGE = 200;
+
+    @Param({"100", "1000", "10000"})
+    int pieces;
+
+    int[] xs;
+    int[] ys;
+    int[] sides;
+    SpatialGrid<Integer> enemies; // pieces of side 1
+    int observer;
+
+    @Setup
+    public void setup(){
+        var random = new Random(42);
+        xs = new int[pieces];
+        ys = new int[pieces];
+        sides = new int[pieces];
+        enemies = new SpatialGrid<>(AircraftIndex.CELL_SIZE);
+        for(var i = 0; i < pieces; i++){
+            xs[i] = random.nextInt(AREA);
+            ys[i] = random.nextInt(AREA);
+            sides[i] = i % 2;
+            if(sides[i] == 1){
+                enemies.put(i, xs[i], ys[i]);
+            }
+        }
+    }
+
+    private int nextObserver(){
+        observer = (observer + 2) % pieces; // side 0 only
+        return observer;
+    }
+
+    @Benchmark
+    public int linearScan(){
+        var o = nextObserver();
+        var found = 0;
+        for(var i = 0; i < pieces; i++){
+            if(sides[i] != sides[o] && Math.hypot(xs[i] - xs[o], ys[i] - ys[o]) <= RANGE){
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int gridScan(){
+        var o = nextObserver();
+        var found = new int[1];
+        enemies.forEachCandidate(xs[o], ys[o], RANGE, i -> {
+            if(Math.hypot(xs[i] - xs[o], ys[i] - ys[o]) <= RANGE){
+                found[0]++;
+            }
+        });
+        return found[0];
+    }
+}
@@ -0,0 +1,49 @@
+package yyz;
+
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.GamePiece;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// YyzCommandEncoder decoding of the AircraftSheet trait and of full piece definitions, as done for every
+// piece of a loaded save and every AddPiece.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class EncoderBenchmark {
+    @Param({"0", "100"})
+    int waypoints;
+
+    YyzCommandEncoder encoder;
+    GamePiece inner;
+    String type;
+    String state;
+
+    @Setup
+    public void setup(){
+        encoder = new YyzCommandEncoder();
+        inner = new BasicPiece();
+
+        var sheet = Fixtures.aircraft("Fighter", "Blue");
+        sheet.mySetState(Fixtures.legacyState(30, Fixtures.route(new Random(42), waypoints)));
+        type = sheet.getType();
+        state = sheet.getState();
+    }
+
+    @Benchmark
+    public GamePiece createDecorator(){
+        return encoder.createDecorator(AircraftSheet.ID, inner);
+    }
+
+    @Benchmark
+    public GamePiece createPiece(){
+        var piece = encoder.createPiece(type);
+        piece.setState(state);
+        return piece;
+    }
+}
@@ -0,0 +1,43 @@
+package yyz;
+
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Marker;
+
+import java.util.Random;
+
+// Pieces and routes shared by the benchmarks. Everything is built off-map, so no GameModule is needed.
+final class Fixtures {
+    private Fixtures(){
+    }
+
+    // BasicPiece <- Marker("Side") <- AircraftSheet, the trait stack used by the sample module.
+    static AircraftSheet aircraft(String name, String side){
+        GamePiece basic = new BasicPiece(BasicPiece.ID + ";;;;" + name);
+        var marker = new Marker(Marker.ID + "Side", basic);
+        marker.mySetState(side);
+        return new AircraftSheet(AircraftSheet.ID, marker);
+    }
+
+    // A plotted route of `n` legs of up to 200 map units.
+    static WaypointPath route(Random random, int n){
+        var route = new WaypointPath(n);
+        var x = 2000;
+        var y = 2000;
+        for(var i = 0; i < n; i++){
+            x += random.nextInt(401) - 200;
+            y += random.nextInt(401) - 200;
+            route.add(x, y);
+        }
+        return route;
+    }
+
+    // The original `range;count;x;y;...` state string.
+    static String legacyState(int range, WaypointPath route){
+        var sb = new StringBuilder().append(range).append(';').append(route.size());
+        for(var i = 0; i < route.size(); i++){
+            sb.append(';').append(route.x(i)).append(';').append(route.y(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package yyz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// One movement step of every piece along its route, sequential and forked like MovementPhase.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class MovementBenchmark {
+    @Param({"100", "1000", "10000"})
+    int pieces;
+
+    WaypointPath[] routes;
+    Simulation.Step[] steps;
+
+    @Setup
+    public void setup(){
+        var random = new Random(42);
+        routes = new WaypointPath[pieces];
+        steps = new Simulation.Step[pieces];
+        for(var i = 0; i < pieces; i++){
+            routes[i] = Fixtures.route(random, 20);
+            steps[i] = new Simulation.Step();
+        }
+    }
+
+    @Benchmark
+    public Simulation.Step[] stepAll(){
+        for(var i = 0; i < pieces; i++){
+            Simulation.stepAlong(2000, 2000, routes[i], AircraftType.DEFAULT_MOVEMENT_ALLOWANCE, steps[i]);
+        }
+        return steps;
+    }
+
+    @Benchmark
+    public Simulation.Step[] stepAllParallel(){
+        IntStream.range(0, pieces).parallel().forEach(i ->
+                Simulation.stepAlong(2000, 2000, routes[i], AircraftType.DEFAULT_MOVEMENT_ALLOWANCE, steps[i]));
+        return steps;
+    }
+}
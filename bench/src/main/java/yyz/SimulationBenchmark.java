@@ -0,0 +1,61 @@
+package yyz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Headless turns of Simulation: every unit moves along its route, then every detection pair is counted.
+// turnsWithContacts also schedules the contacts made during each move, see PulseScheduler.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    static final int AREA = 10000;
+    static final int RANGE = 200;
+    static final int TURNS = 10;
+
+    @Param({"1000", "10000"})
+    int units;
+
+    Simulation simulation;
+
+    @Setup(Level.Invocation)
+    public void setup(){
+        var random = new Random(42);
+        simulation = new Simulation();
+        for(var i = 0; i < units; i++){
+            var x = random.nextInt(AREA);
+            var y = random.nextInt(AREA);
+            var unit = simulation.add(i % 2 == 0 ? "Axis" : "Allies", x, y, AircraftType.DEFAULT_MOVEMENT_ALLOWANCE, RANGE);
+            for(var w = 0; w < 20; w++){ // random walk from the start, like Fixtures.route
+                x += random.nextInt(401) - 200;
+                y += random.nextInt(401) - 200;
+                unit.route().add(x, y);
+            }
+        }
+    }
+
+    @Benchmark
+    public int turns(){
+        var detections = 0;
+        for(var turn = 0; turn < TURNS; turn++){
+            simulation.advance();
+            detections += simulation.countDetections();
+        }
+        return detections;
+    }
+
+    @Benchmark
+    public int turnsWithContacts(){
+        var contacts = new int[1];
+        for(var turn = 0; turn < TURNS; turn++){
+            simulation.advance((observer, target) -> contacts[0]++);
+            contacts[0] += simulation.countDetections();
+        }
+        return contacts[0];
+    }
+}
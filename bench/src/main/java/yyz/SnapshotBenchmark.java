@@ -0,0 +1,67 @@
+package yyz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Loading the aircraft of a save: every sheet decoding its own full state, as in a save made without AircraftSnapshot,
+// against the bare "~3" states plus one snapshot block, as in a compacted save. Only the AircraftSheet layer is timed,
+// the other traits decode the same either way.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+    @Param({"100", "1000"})
+    int aircraft;
+
+    @Param({"20"})
+    int waypoints;
+
+    List<AircraftSheet> sheets;
+    HashMap<String, AircraftSheet> byId;
+    String[] states;
+    String block;
+
+    @Setup
+    public void setup(){
+        var random = new Random(42);
+        sheets = new ArrayList<>(aircraft);
+        byId = new HashMap<>();
+        states = new String[aircraft];
+        for(var i = 0; i < aircraft; i++){
+            var sheet = Fixtures.aircraft("Fighter " + i, i % 2 == 0 ? "Blue" : "Red");
+            sheet.setId("piece" + i);
+            sheet.mySetState(Fixtures.legacyState(30, Fixtures.route(random, waypoints)));
+            sheets.add(sheet);
+            byId.put(sheet.getId(), sheet);
+            states[i] = sheet.myGetState();
+        }
+        block = AircraftSnapshot.capture(sheets).getColumns().encode();
+        System.out.printf("%n%d aircraft: %,d chars of sheet states, %,d chars of snapshot block%n",
+                aircraft, String.join("", states).length(), block.length());
+    }
+
+    @Benchmark
+    public List<AircraftSheet> loadPerPiece(){
+        for(var i = 0; i < aircraft; i++){
+            sheets.get(i).mySetState(states[i]);
+        }
+        return sheets;
+    }
+
+    @Benchmark
+    public List<AircraftSheet> loadSnapshot(){
+        for(var sheet : sheets){
+            sheet.mySetState(AircraftSheet.STATE_V3);
+        }
+        new AircraftSnapshot.Restore(AircraftSnapshot.Columns.decode(block)).apply(byId::get);
+        return sheets;
+    }
+}
@@ -0,0 +1,47 @@
+package yyz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// AircraftSheet.myGetState/mySetState for the compact format, plus decoding of the original format.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class StateBenchmark {
+    @Param({"10", "100", "1000"})
+    int waypoints;
+
+    AircraftSheet sheet;
+    String state;
+    String legacyState;
+
+    @Setup
+    public void setup(){
+        sheet = Fixtures.aircraft("Fighter", "Blue");
+        legacyState = Fixtures.legacyState(30, Fixtures.route(new Random(42), waypoints));
+        sheet.mySetState(legacyState);
+        state = sheet.myGetState();
+    }
+
+    @Benchmark
+    public String getState(){
+        return sheet.myGetState();
+    }
+
+    @Benchmark
+    public AircraftSheet setState(){
+        sheet.mySetState(state);
+        return sheet;
+    }
+
+    @Benchmark
+    public AircraftSheet setLegacyState(){
+        sheet.mySetState(legacyState);
+        return sheet;
+    }
+}
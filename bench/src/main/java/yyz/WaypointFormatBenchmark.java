@@ -0,0 +1,67 @@
+package yyz;
+
+import VASSAL.tools.SequenceEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The waypoint part of the AircraftSheet state in the original `count;x;y;...` SequenceEncoder form against the
+// compact WaypointCodec form, encoding and decoding the same route. WaypointCodecTest compares their length.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class WaypointFormatBenchmark {
+    @Param({"10", "100", "1000"})
+    int waypoints;
+
+    WaypointPath route;
+    String legacy;
+    String compact;
+
+    @Setup
+    public void setup(){
+        route = Fixtures.route(new Random(42), waypoints);
+        legacy = encodeLegacy();
+        compact = encodeCompact();
+    }
+
+    @Benchmark
+    public String encodeLegacy(){
+        var se = new SequenceEncoder(';');
+        se.append(route.size());
+        for(var i = 0; i < route.size(); i++){
+            se.append(route.x(i));
+            se.append(route.y(i));
+        }
+        return se.getValue();
+    }
+
+    @Benchmark
+    public String encodeCompact(){
+        return WaypointCodec.encode(route);
+    }
+
+    @Benchmark
+    public WaypointPath decodeLegacy(){
+        var sd = new SequenceEncoder.Decoder(legacy, ';');
+        var n = sd.nextInt(0);
+        var out = new WaypointPath(n);
+        for(var i = 0; i < n; i++){
+            var x = sd.nextInt(0);
+            var y = sd.nextInt(0);
+            out.add(x, y);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public WaypointPath decodeCompact(){
+        var out = new WaypointPath(waypoints);
+        WaypointCodec.decode(compact, out);
+        return out;
+    }
+}
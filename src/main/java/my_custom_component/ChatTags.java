@@ -0,0 +1,30 @@
+package my_custom_component;
+
+/**
+ * The @p1 / @p2 / @solo tags that color a chat line in narrated playbacks, see {@link MyChatter#chatStyle}.
+ * Kept apart from MyChatter so it can be tested without VASSAL.
+ */
+final class ChatTags {
+  private ChatTags() {
+  }
+
+  /**
+   * Finds the @p1 / @p2 / @solo tags in a single pass over the message.
+   * As before, @p1 anywhere beats @p2, which beats @solo.
+   * @param s - chat message
+   * @return style name of the strongest tag, or null if there is none
+   */
+  static String taggedStyle(String s) {
+    boolean p2 = false, solo = false;
+    for (int i = s.indexOf('@'); i >= 0; i = s.indexOf('@', i + 1)) {
+      if (s.startsWith("p1", i + 1)) {
+        return "player1";
+      } else if (s.startsWith("p2", i + 1)) {
+        p2 = true;
+      } else if (s.startsWith("solo", i + 1)) {
+        solo = true;
+      }
+    }
+    return p2 ? "player2" : solo ? "solo" : null;
+  }
+}
@@ -0,0 +1,90 @@
+package my_custom_component;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A bulk roll as typed after /roll, "NdS" or "NdS>=T", see {@link MyChatter}.
+ * Kept apart from MyChatter so it can be tested without VASSAL.
+ */
+final class DiceRoll {
+  static final int MAX_DICE = 10000; // Keeps a typo like /roll 2000000d6 from freezing everyone's client
+  static final int MAX_SIDES = 1000;
+
+  private static final Pattern ROLL = Pattern.compile("(\\d{1,9})\\s*d\\s*(\\d{1,9})(?:\\s*>=\\s*(\\d{1,9}))?", Pattern.CASE_INSENSITIVE);
+
+  final int dice;
+  final int sides;
+  final int target; // -1 without a target
+
+  private DiceRoll(int dice, int sides, int target) {
+    this.dice = dice;
+    this.sides = sides;
+    this.target = target;
+  }
+
+  /**
+   * @param args - e.g. "200d6>=5"
+   * @return the roll, or null if the arguments don't parse
+   */
+  static DiceRoll parse(String args) {
+    final Matcher m = ROLL.matcher(args);
+    if (!m.matches()) {
+      return null;
+    }
+    return new DiceRoll(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), m.group(3) == null ? -1 : Integer.parseInt(m.group(3)));
+  }
+
+  boolean isWithinLimits() {
+    return dice >= 1 && dice <= MAX_DICE && sides >= 1 && sides <= MAX_SIDES;
+  }
+
+  /**
+   * Draws all dice in one pass
+   * @param ran - random source, the module's RNG in a game
+   * @return how many dice show each value, index 0 unused
+   */
+  int[] roll(Random ran) {
+    final int[] counts = new int[sides + 1];
+    for (int i = 0; i < dice; i++) {
+      counts[ran.nextInt(sides) + 1]++;
+    }
+    return counts;
+  }
+
+  /**
+   * One chat line with the successes (when a target is given) or the total, and the histogram for small dice
+   * @param who    - player name as shown in the chat
+   * @param counts - result of {@link #roll}
+   * @return e.g. "Alice rolls 3d6>=5: 1 success [1:0 2:1 3:0 4:1 5:1 6:0]"
+   */
+  String describe(String who, int[] counts) {
+    final StringBuilder sb = new StringBuilder(who).append(" rolls ").append(dice).append('d').append(sides);
+    if (target >= 0) {
+      int hits = 0;
+      for (int v = Math.max(target, 1); v <= sides; v++) {
+        hits += counts[v];
+      }
+      sb.append(">=").append(target).append(": ").append(hits).append(hits == 1 ? " success" : " successes");
+    }
+    else {
+      long total = 0;
+      for (int v = 1; v <= sides; v++) {
+        total += (long) v * counts[v];
+      }
+      sb.append(": total ").append(total);
+    }
+    if (sides <= 20) { // A histogram of a d100 roll is noise, the total says enough
+      sb.append(" [");
+      for (int v = 1; v <= sides; v++) {
+        if (v > 1) {
+          sb.append(' ');
+        }
+        sb.append(v).append(':').append(counts[v]);
+      }
+      sb.append(']');
+    }
+    return sb.toString();
+  }
+}
@@ -19,6 +19,7 @@ package my_custom_component;
 
 import VASSAL.build.Buildable;
 import VASSAL.build.GameModule;
+import VASSAL.build.module.PlayerRoster;
 import VASSAL.command.CommandEncoder;
 import VASSAL.configure.ColorConfigurer;
 import VASSAL.i18n.Resources;
@@ -26,7 +27,12 @@ import VASSAL.preferences.Prefs;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import javax.swing.SwingUtilities;
 
 /**
  * A tight mini-mod of the VASSAL 3.4 Chatter (Chat Log), to assign chat colors based on which side players are playing
@@ -69,6 +75,19 @@ public final class MyChatter extends VASSAL.build.module.Chatter implements Comm
   // These hold the colors AFTER the player has potentially reconfigured them in the Preferences window
   private Color chat1, chat2;
 
+  // Player side and chat prefix, looked up once and refreshed when the side or the player name changes,
+  // instead of being asked from the module for every line shown
+  private Object playerSide;
+  private String chatPrefix;
+
+  // Lines waiting to be shown. A replay burst is appended in one go on the event thread instead of line by line
+  private final List<String> pendingLines = new ArrayList<>();
+  private boolean flushScheduled;
+
+  // Bursts of at least this many lines are appended while the document is detached from the pane. Rebuilding the
+  // pane's views costs as much as the whole chat log, so a few lines are cheaper to append one by one
+  private static final int DETACHED_BURST = 32;
+
   /**
    * Styles a chat message based on the player who sent it.
    * Overrides VASSAL's standard "my machine" / "other machine" logic with a way to assign the CP "grey" color to whoever
@@ -76,28 +95,49 @@ public final class MyChatter extends VASSAL.build.module.Chatter implements Comm
    */
   @Override
   protected String getChatStyle(String s) {
+    if (chatPrefix == null) {
+      chatPrefix = formatChat("").trim();
+      playerSide = GameModule.getGameModule().getProperty(VASSAL.build.module.GlobalOptions.PLAYER_SIDE);
+    }
+    return chatStyle(s, chatPrefix, playerSide);
+  }
+
+  /**
+   * Forgets the cached side and prefix, the next styled line looks them up again
+   */
+  private void invalidatePlayer() {
+    chatPrefix = null;
+    playerSide = null;
+  }
+
+  /**
+   * The style decision of {@link #getChatStyle}, with the chat prefix and player side passed in so it runs without
+   * a module (the benchmarks call it headless).
+   * @param s      - chat message
+   * @param prefix - what formatChat("") produces for this player, trimmed
+   * @param side   - this player's side
+   * @return style name
+   */
+  static String chatStyle(String s, String prefix, Object side) {
     String style;
 
-    if (s.startsWith(formatChat("").trim())) { //$NON-NLS-1$
-      if (GameModule.getGameModule().getProperty(VASSAL.build.module.GlobalOptions.PLAYER_SIDE).equals(FIRST_PLAYER_SIDE_NAME)) {
+    if (s.startsWith(prefix)) { //$NON-NLS-1$
+      if (FIRST_PLAYER_SIDE_NAME.equals(side)) {
         style = "player1";
-      } else if (GameModule.getGameModule().getProperty(VASSAL.build.module.GlobalOptions.PLAYER_SIDE).equals(SOLO_PLAYER_SIDE_NAME)) {
+      } else if (SOLO_PLAYER_SIDE_NAME.equals(side)) {
         style = "solo";
       } else {
         style = "player2";
       }
 
-      if (s.contains("@p1")) {  // A way to have explicit color chat messages in narrated playbacks. By typing @p1 or @p2 or @solo at beginning of chat line
-        style = "player1";
-      } else if (s.contains("@p2")) {
-        style = "player2";
-      } else if (s.contains("@solo")) {
-        style = "solo";
+      final String tagged = ChatTags.taggedStyle(s); // A way to have explicit color chat messages in narrated playbacks. By typing @p1 or @p2 or @solo at beginning of chat line
+      if (tagged != null) {
+        style = tagged;
       }
     } else {
-      if (GameModule.getGameModule().getProperty(VASSAL.build.module.GlobalOptions.PLAYER_SIDE).equals(FIRST_PLAYER_SIDE_NAME)) {
+      if (FIRST_PLAYER_SIDE_NAME.equals(side)) {
         style = "player2";
-      } else if (GameModule.getGameModule().getProperty(VASSAL.build.module.GlobalOptions.PLAYER_SIDE).equals(SOLO_PLAYER_SIDE_NAME) || GameModule.getGameModule().getProperty(VASSAL.build.module.GlobalOptions.PLAYER_SIDE).equals("<observer>")) {
+      } else if (SOLO_PLAYER_SIDE_NAME.equals(side) || "<observer>".equals(side)) {
         style = "solo";
       } else {
         style = "player1";
@@ -107,6 +147,58 @@ public final class MyChatter extends VASSAL.build.module.Chatter implements Comm
     return style;
   }
 
+  /**
+   * Shows the line right away when called on the event thread, and queues every further line until that event is
+   * over, or any line coming from another thread. The queue is appended in one event thread task, and a long burst of
+   * lines during log replay or PBEM catch-up is laid out once instead of once per line.
+   */
+  @Override
+  public void show(String s) {
+    final boolean now;
+    synchronized (pendingLines) {
+      now = SwingUtilities.isEventDispatchThread() && !flushScheduled;
+      if (!now) {
+        pendingLines.add(s);
+      }
+      if (flushScheduled) {
+        return;
+      }
+      flushScheduled = true;
+    }
+    SwingUtilities.invokeLater(this::flushPendingLines);
+    if (now) {
+      super.show(s);
+    }
+  }
+
+  private void flushPendingLines() {
+    final List<String> lines;
+    synchronized (pendingLines) {
+      lines = new ArrayList<>(pendingLines);
+      pendingLines.clear();
+      flushScheduled = false;
+    }
+    if (lines.size() < DETACHED_BURST) {
+      for (final String line : lines) {
+        super.show(line);
+      }
+      return;
+    }
+
+    // Let VASSAL's chatter style and append every line as usual, but into the document while the pane shows an empty
+    // one, so the pane builds its views for the whole burst once when it gets the document back
+    conversationPane.setDocument(conversationPane.getEditorKit().createDefaultDocument());
+    try {
+      for (final String line : lines) {
+        super.show(line);
+      }
+    }
+    finally {
+      conversationPane.setDocument(doc);
+      conversationPane.setCaretPosition(doc.getLength());
+    }
+  }
+
   /**
    * Adds our two player color styles to the HTML stylesheet
    */
@@ -166,11 +258,80 @@ public final class MyChatter extends VASSAL.build.module.Chatter implements Comm
 
     chat2 = (Color) globalPrefs.getValue(SECOND_PLAYER_CHAT_PREF);
 
+    // Keep the cached side and chat prefix current
+    PlayerRoster.addSideChangeListener((oldSide, newSide) -> invalidatePlayer());
+    final VASSAL.configure.Configurer nameOption = GameModule.getGameModule().getPrefs().getOption(GameModule.REAL_NAME);
+    if (nameOption != null) {
+      nameOption.addPropertyChangeListener(e -> invalidatePlayer());
+    }
+
+    registerOwnCommands();
+
     // Now make our stylesheet
     makeStyleSheet(null);
   }
 
 
+  /**
+   * A console command typed in the chat box, e.g. "/roll 20d6>=5"
+   */
+  @FunctionalInterface
+  public interface ConsoleCommand {
+    /**
+     * @param args - whatever was typed after the command name, trimmed
+     * @return true if the line was a command of this name, also when it only showed its usage; false to pass it on
+     *         to VASSAL's console
+     */
+    boolean run(String args);
+  }
+
+  // Console commands by lower case name: our own, added in addTo, and those of other components, e.g. "/perf"
+  private static final Map<String, ConsoleCommand> consoleCommands = new HashMap<>();
+
+  /**
+   * Lets custom components add console commands without this class knowing about them
+   * @param name    - command as typed, e.g. "/perf"
+   * @param command - handler, gets whatever was typed after the name
+   */
+  public static void registerConsoleCommand(String name, ConsoleCommand command) {
+    synchronized (consoleCommands) {
+      consoleCommands.put(name.toLowerCase(), command);
+    }
+  }
+
+  /**
+   * The commands of this class. Add your own here.
+   */
+  private void registerOwnCommands() {
+    registerConsoleCommand("/d6", args -> {
+      final Random ran = GameModule.getGameModule().getRNG();
+      final int d6 = ran.nextInt(6);
+      send("* D6 = " + d6); // Messages starting with "*" display in game message font. Messages starting with "-" display as a system message.
+      return true;
+    });
+    registerConsoleCommand("/roll", this::roll);
+  }
+
+  /**
+   * Bulk roller, "/roll NdS" or "/roll NdS>=T". Draws all N dice in one pass and sends one line with the total,
+   * the successes (when a target is given) and the histogram, instead of one chat command per die.
+   * @param args - e.g. "200d6>=5"
+   * @return true, a line that doesn't parse only shows the usage
+   */
+  private boolean roll(String args) {
+    final DiceRoll roll = DiceRoll.parse(args);
+    if (roll == null) {
+      show("- Usage: /roll NdS or /roll NdS>=T, e.g. /roll 200d6>=5");
+    }
+    else if (!roll.isWithinLimits()) {
+      show("- /roll: at most " + DiceRoll.MAX_DICE + " dice of at most " + DiceRoll.MAX_SIDES + " sides");
+    }
+    else {
+      send("* " + roll.describe(formatChat("").trim(), roll.roll(GameModule.getGameModule().getRNG())));
+    }
+    return true;
+  }
+
   /**
    * ANOTHER LITTLE BONUS PROJECT!!!
    *
@@ -178,18 +339,23 @@ public final class MyChatter extends VASSAL.build.module.Chatter implements Comm
    * @param s            - chat message
    * @param style        - current style name (contains information that might be useful)
    * @param html_allowed - flag if html_processing is enabled for this message (allows console to apply security considerations)
-   * @return true        - if was accepted as a console command
+   * @return true        - if a console command handled it, false passes it on to VASSAL's console
    */
   @Override
   public boolean consoleHook(String s, String style, boolean html_allowed) {
-
-    // Sample console command to roll a d6 when /d6 is typed as a chat line.
-    if (s.toLowerCase().startsWith("/d6")) {
-      Random ran = GameModule.getGameModule().getRNG();
-      int d6 = ran.nextInt(6);
-      send("* D6 = " + d6); // Messages starting with "*" display in game message font. Messages starting with "-" display as a system message.
+    final String line = s.trim();
+    if (!line.startsWith("/")) {
+      return false;
     }
-
-    return false;
+    final int space = line.indexOf(' ');
+    final String name = (space < 0 ? line : line.substring(0, space)).toLowerCase();
+    final ConsoleCommand command;
+    synchronized (consoleCommands) {
+      command = consoleCommands.get(name);
+    }
+    if (command == null) {
+      return false;
+    }
+    return command.run(space < 0 ? "" : line.substring(space + 1).trim());
   }
 }
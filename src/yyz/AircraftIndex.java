@@ -0,0 +1,131 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.GameComponent;
+import VASSAL.build.module.Map;
+import VASSAL.command.Command;
+import VASSAL.counters.Decorator;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+// Module-level uniform grid of AircraftSheet pieces, bucketed by map and side.
+// Detection only visits the cells overlapping the detection circle instead of walking every piece in the game.
+// AircraftSheet keeps its entry current from setPosition/setMap/mySetState, entries of removed pieces are dropped lazily.
+// Every update is also passed on to VisibilityEngine, which recomputes the fog of war of exactly those pieces.
+public class AircraftIndex implements GameComponent {
+    // Cell edge in map coordinates, roughly a typical medium detection range.
+    static final int CELL_SIZE = 256;
+
+    private static final AircraftIndex instance = new AircraftIndex();
+
+    public static AircraftIndex getInstance(){
+        return instance;
+    }
+
+    // map -> side -> grid
+    private final HashMap<Map, HashMap<String, SpatialGrid<AircraftSheet>>> grids = new HashMap<>();
+    private final IdentityHashMap<AircraftSheet, Entry> entries = new IdentityHashMap<>();
+
+    private static class Entry {
+        final Map map;
+        final String side;
+
+        Entry(Map map, String side){
+            this.map = map;
+            this.side = side;
+        }
+    }
+
+    static String sideOf(AircraftSheet sheet){
+        var side = Decorator.getOutermost(sheet).getProperty("Side"); // Side is assigned from a Marker
+        return side == null ? "" : side.toString();
+    }
+
+    public void update(AircraftSheet sheet){
+        VisibilityEngine.getInstance().markDirty(sheet);
+        var map = sheet.getMap();
+        var pos = sheet.getPosition();
+        if(map == null || pos == null){
+            remove(sheet);
+            return;
+        }
+        var side = sideOf(sheet);
+
+        var old = entries.get(sheet);
+        if(old != null && (old.map != map || !old.side.equals(side))){
+            remove(sheet);
+            old = null;
+        }
+        if(old == null){
+            entries.put(sheet, new Entry(map, side));
+        }
+        grids.computeIfAbsent(map, m -> new HashMap<>())
+                .computeIfAbsent(side, s -> new SpatialGrid<>(CELL_SIZE))
+                .put(sheet, pos.x, pos.y);
+    }
+
+    public void remove(AircraftSheet sheet){
+        VisibilityEngine.getInstance().markDirty(sheet);
+        var old = entries.remove(sheet);
+        if(old != null){
+            var sides = grids.get(old.map);
+            if(sides != null && sides.containsKey(old.side)){
+                sides.get(old.side).remove(sheet);
+            }
+        }
+    }
+
+    public void clear(){
+        grids.clear();
+        entries.clear();
+    }
+
+    // All indexed pieces on `map` whose side differs from `side` and which lie within `range` of `center`.
+    public List<AircraftSheet> findEnemies(Map map, String side, Point center, double range){
+        var result = new ArrayList<AircraftSheet>();
+        var sides = grids.get(map);
+        if(sides == null){
+            return result;
+        }
+
+        var gs = GameModule.getGameModule().getGameState();
+        var stale = new ArrayList<AircraftSheet>();
+
+        for(var sideGrid : sides.entrySet()){
+            if(sideGrid.getKey().equals(side)){
+                continue;
+            }
+            sideGrid.getValue().forEachCandidate(center.x, center.y, range, sheet -> {
+                var outermost = Decorator.getOutermost(sheet);
+                // RemovePiece does not tell the trait, so deleted pieces are detected here.
+                if(sheet.getMap() != map || gs.getPieceForId(outermost.getId()) == null){
+                    stale.add(sheet);
+                }else if(Simulation.inRange(center.x, center.y, range, sheet.getPosition().x, sheet.getPosition().y)){
+                    result.add(sheet);
+                }
+            });
+        }
+
+        for(var sheet : stale){
+            remove(sheet);
+            VisibilityEngine.getInstance().discard(sheet);
+        }
+        return result;
+    }
+
+    @Override
+    public void setup(boolean gameStarting){
+        if(!gameStarting){
+            clear();
+        }
+    }
+
+    @Override
+    public Command getRestoreCommand(){
+        return null;
+    }
+}
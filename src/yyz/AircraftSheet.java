@@ -12,8 +12,11 @@ import VASSAL.tools.SequenceEncoder;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.HashSet;
+import java.util.List;
 
 public class AircraftSheet extends Decorator implements MouseListener {
     // ID is used as the serialization identification head.
@@ -31,47 +34,97 @@ public class AircraftSheet extends Decorator implements MouseListener {
         mySetType(type);
     }
 
+    // Head of the compact state format. States without it are the original `range;count;x;y;...` form.
+    static final String STATE_V2 = "~2";
+    // State of the AddPiece commands of saves that carry an AircraftSnapshot block, the block restores everything else.
+    static final String STATE_V3 = "~3";
+
     // "State" is the state in a running game
     @Override
     public void mySetState(String s) {
+        var t0 = Perf.start();
         var sd = new SequenceEncoder.Decoder(s, ';');
+        var before = piece != null && getMap() != null ? extent() : null;
 
-        mediumDetectionRange = sd.nextInt(0);
-        var numWaypoints = sd.nextInt(0);
         waypoints.clear();
-        for(var i=0; i<numWaypoints; i++){
-            var x = sd.nextInt(0);
-            var y = sd.nextInt(0);
-            waypoints.add(new Point(x, y));
+        if(s.startsWith(STATE_V2 + ";")){
+            sd.nextToken(); // Drop version
+            mediumDetectionRange = sd.nextInt(0);
+            WaypointCodec.decode(sd.nextToken(""), waypoints);
+            var concealed = sd.nextToken("");
+            concealedBy = concealed.isEmpty() ? null : concealed;
+        }else if(s.equals(STATE_V3)){
+            concealedBy = null;
+            mediumDetectionRange = 0; // until AircraftSnapshot.Restore hydrates the piece
+        }else{
+            concealedBy = null;
+            mediumDetectionRange = sd.nextInt(0);
+            var numWaypoints = sd.nextInt(0);
+            for(var i=0; i<numWaypoints; i++){
+                var x = sd.nextInt(0);
+                var y = sd.nextInt(0);
+                waypoints.add(x, y);
+            }
+        }
+        capWaypoints();
+
+        if(piece != null){ // the editor builds a bare trait without an inner piece
+            AircraftIndex.getInstance().update(this);
+            repaintExtent(before);
         }
+        Perf.stop(Perf.SET_STATE, t0);
     }
 
     @Override
     public String myGetState() {
-        var se = new SequenceEncoder(';');
+        var t0 = Perf.start();
+        var se = new SequenceEncoder(STATE_V2, ';');
 
         se.append(mediumDetectionRange);
-
-        se.append(waypoints.size());
-        for (Point waypoint : waypoints) {
-            se.append(waypoint.x);
-            se.append(waypoint.y);
+        se.append(WaypointCodec.encode(waypoints)); // delta + varint, see WaypointCodec
+        if(concealedBy != null){
+            se.append(concealedBy);
         }
 
-        return se.getValue();
+        var state = se.getValue();
+        Perf.stop(Perf.GET_STATE, t0);
+        return state;
+    }
+
+    // Sets the dynamic state from an AircraftSnapshot block, the points `from` to `to` of `points` being the route.
+    void hydrate(int range, WaypointPath points, int from, int to, String concealed){
+        var before = getMap() != null ? extent() : null;
+        mediumDetectionRange = range;
+        waypoints.clear();
+        waypoints.addAll(points, from, to);
+        capWaypoints();
+        concealedBy = concealed;
+        AircraftIndex.getInstance().update(this);
+        repaintExtent(before);
+    }
+
+    // Drops the waypoints beyond the limit of the type, whatever sent them. The first ones are flown first, so they stay.
+    private void capWaypoints(){
+        if(aircraftType != null){
+            waypoints.retract(aircraftType.excessWaypoints(waypoints.size()));
+        }
     }
 
     // "Type" is the state specified in the editor and frozen in a game session.
     @Override
     public String myGetType() {
-        var se = new SequenceEncoder(';');
-        return ID + se.getValue();
+        return aircraftType.type;
     }
 
     @Override
     public void mySetType(String s) {
-        var sd = new SequenceEncoder.Decoder(s, ';');
-        sd.nextToken(); // Drop head;
+        aircraftType = AircraftType.of(s); // parsed once per definition, see AircraftType
+    }
+
+    private AircraftType aircraftType;
+
+    double getMovementAllowance(){
+        return aircraftType.movementAllowance;
     }
 
     private KeyCommand[] commands;
@@ -80,6 +133,8 @@ public class AircraftSheet extends Decorator implements MouseListener {
     private final KeyStroke waypointCommand = KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0);
     private final KeyStroke concludeMouseCommand = KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0);
     private final KeyStroke moveCommand = KeyStroke.getKeyStroke(KeyEvent.VK_M, 0);
+    private final KeyStroke previewFireCommand = KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.SHIFT_DOWN_MASK);
+    private final KeyStroke previewMoveCommand = KeyStroke.getKeyStroke(KeyEvent.VK_M, InputEvent.SHIFT_DOWN_MASK);
 
     @Override
     protected KeyCommand[] myGetKeyCommands() {
@@ -89,7 +144,9 @@ public class AircraftSheet extends Decorator implements MouseListener {
                     new KeyCommand("Fire", fireCommand, this),
                     new KeyCommand("Plot Waypoint", waypointCommand, this),
                     new KeyCommand("Conclude Plot Waypoint", concludeMouseCommand, this),
-                    new KeyCommand("Move a step", moveCommand, this)
+                    new KeyCommand("Move a step", moveCommand, this),
+                    new KeyCommand("Preview Fire Odds", previewFireCommand, this),
+                    new KeyCommand("Preview Move Odds", previewMoveCommand, this)
             };
         }
         return commands;
@@ -100,7 +157,8 @@ public class AircraftSheet extends Decorator implements MouseListener {
 
     int mediumDetectionRange;
 
-    String oldState;
+    // HIDDEN_BY this piece had before VisibilityEngine revealed it, null unless it is revealed by the engine.
+    String concealedBy;
 
     public void handleOpen(){
         if(frame == null){
@@ -119,26 +177,24 @@ public class AircraftSheet extends Decorator implements MouseListener {
             frame.addWindowListener(new WindowAdapter(){
                 @Override
                 public void windowClosing(WindowEvent evt){
-                    mediumDetectionRange = mediumDetectionRangeConfigurer.getIntValue(0);
-
-                    var outermost = getOutermost(AircraftSheet.this);
-                    var newState = outermost.getState();
-                    if(!oldState.equals(newState)){
+                    var newRange = mediumDetectionRangeConfigurer.getIntValue(0);
+                    if(newRange != mediumDetectionRange){
                         var mod = GameModule.getGameModule();
-                        var command = new Chatter.DisplayText(mod.getChatter(), "Change Piece");
+                        var setRange = new SetDetectionRange(getOutermost(AircraftSheet.this).getId(), mediumDetectionRange, newRange);
+                        setRange.execute(); // repaints the old and new ring
+                        var revealed = new ArrayList<String>();
+                        var lost = new ArrayList<String>();
+                        var visibility = VisibilityEngine.getInstance().refresh(revealed, lost); // a new range sees more or less
+                        var command = new Chatter.DisplayText(mod.getChatter(), "Change Piece" + VisibilityEngine.describe(revealed, lost));
                         command.execute();
-                        command.append(new ChangePiece(outermost.getId(), oldState, newState));
-                        mod.sendAndLog(command);
-
-                        AircraftSheet.this.getMap().repaint(); // Force-repaint when closing
+                        command.append(setRange);
+                        command.append(visibility);
+                        Perf.sendAndLog(command);
                     }
                 }
 
                 @Override
                 public void windowActivated(WindowEvent evt){
-                    var outermost = getOutermost(AircraftSheet.this);
-                    oldState = outermost.getState();
-
                     mediumDetectionRangeConfigurer.setValue(mediumDetectionRange);
                 }
             });
@@ -161,7 +217,12 @@ public class AircraftSheet extends Decorator implements MouseListener {
             // JOptionPane.showMessageDialog(null, "Hello custom code for Vassal");
             handleOpen();
         }else if(keyStroke.equals(fireCommand)){
-            if(mouseMode == null){ // Permit only one "queued" firing target selection.
+            var salvo = Salvo.active();
+            if(salvo != null && salvo.contains(this)){
+                return null; // already firing as part of the salvo started by another selected aircraft
+            }
+            if(mouseMode == null && salvo == null){ // Permit only one "queued" firing target selection.
+                Salvo.begin(this);
                 mouseMode = MouseMode.FIRING;
                 getMap().pushMouseListener(this); // replace default handler with AircraftSheet
             }
@@ -172,103 +233,119 @@ public class AircraftSheet extends Decorator implements MouseListener {
 
                 // waypoints.clear();
                 tempWaypoints.clear();
+                startRubberBand();
             }
         }else if(keyStroke.equals(concludeMouseCommand)){
+            if(mouseMode == null){
+                return null; // Conclude reaches every selected piece, only the one listening to the mouse acts on it
+            }
             getMap().popMouseListener();
 
-            if(mouseMode == MouseMode.FIRING){ // cancel firing
+            if(mouseMode == MouseMode.FIRING){ // cancel single fire, resolve a salvo
                 mouseMode = null;
+                var salvo = Salvo.active();
+                Salvo.end();
+                if(salvo != null && !salvo.targets.isEmpty()){
+                    fire(salvo);
+                }
             }else if(mouseMode == MouseMode.WAYPOINTPLOTTING){ // commit temp waypoints
+                stopRubberBand();
                 mouseMode = null;
 
-                var changeTracker = new ChangeTracker(getOutermost(this));
-
-                waypoints.clear();
-                waypoints.addAll(tempWaypoints);
+                // Clicks that barely bend the route are dropped before they reach the state, the commands and the
+                // drawing, then the route is cut to the limit of the type.
+                var pos = getPosition();
+                var route = tempWaypoints.simplify(pos.x, pos.y, aircraftType.simplifyTolerance);
+                var simplified = tempWaypoints.size() - route.size();
+                var excess = aircraftType.excessWaypoints(route.size());
+                route.retract(excess);
+
+                // Only the replaced and the new points are sent, not the whole piece state.
+                var before = extent();
+                var id = getOutermost(this).getId();
+                Command changeCommand = new NullCommand();
+                if(!waypoints.isEmpty()){
+                    changeCommand = changeCommand.append(new ConsumeWaypoints(id, waypoints.copy(), false));
+                }
+                if(!route.isEmpty()){
+                    changeCommand = changeCommand.append(new AppendWaypoints(id, route, false));
+                }
+                changeCommand.execute();
                 tempWaypoints.clear();
+                repaintExtent(before);
 
-                var changeCommand = changeTracker.getChangeCommand();
+                var message = "Set Waypoint";
+                if(simplified > 0){
+                    message += String.format(" - %d point%s simplified away", simplified, simplified == 1 ? "" : "s");
+                }
+                if(excess > 0){
+                    message += String.format(" - %d point%s over the limit of %d dropped", excess, excess == 1 ? "" : "s", aircraftType.maxWaypoints);
+                }
                 var mod = GameModule.getGameModule();
-                var c = new Chatter.DisplayText(mod.getChatter(), "Set Waypoint");
+                var c = new Chatter.DisplayText(mod.getChatter(), message);
                 c.execute();
                 c.append(changeCommand);
-                mod.sendAndLog(c);
+                Perf.sendAndLog(c);
             }
         }else if(keyStroke.equals(moveCommand)){
             doMove();
+        }else if(keyStroke.equals(previewFireCommand)){
+            if(isPreviewLeader()){
+                previewFire();
+            }
+        }else if(keyStroke.equals(previewMoveCommand)){
+            if(isPreviewLeader()){
+                previewMove();
+            }
         }
 
         return null;
     }
 
+    // The stepping runs on the MovePipeline worker, applyMove finishes the move back on the EDT.
     void doMove(){
-        var movement = 100.;
-        var currentPos = getPosition();
-
-        var changeTracker = new ChangeTracker(this); // waypoints may update
-
-        while(movement > 0 && !waypoints.isEmpty()){
-
-            var nextDestinatePos = waypoints.get(0);
-            var dist = currentPos.distance(nextDestinatePos);
-            if(movement >= dist){
-                movement -= dist;
-                waypoints.remove(0);
-                currentPos = nextDestinatePos;
-            }else{
-                var p = movement / dist;
-                var x = currentPos.x * (1-p) + nextDestinatePos.x * p;
-                var y = currentPos.y * (1-p) + nextDestinatePos.y * p;
-                currentPos = new Point((int)Math.floor(x), (int)Math.floor(y));
-
-                movement = 0;
-            }
+        if(getMap() == null || MovePipeline.isInFlight(this)){
+            return; // a second press while the first move is still being computed
         }
+        var plan = new MovePipeline.Plan(this);
+        MovePipeline.submit(List.of(plan), result -> {
+            if(!result.plans.isEmpty()){
+                applyMove(plan, result.moves);
+            }
+        });
+    }
 
-        var changePieceCommand = changeTracker.getChangeCommand();
+    private void applyMove(MovePipeline.Plan plan, VisibilityEngine.Moves moves){
+        var t0 = Perf.start();
+        var step = plan.step; // same stepping as headless runs, see Simulation.stepAlong
+        var currentPos = step.position();
 
-        var mod = GameModule.getGameModule();
+        Command consumeCommand = null;
+        if(step.consumed > 0){
+            consumeCommand = new ConsumeWaypoints(getOutermost(this).getId(), plan.route.copyRange(0, step.consumed), false);
+            consumeCommand.execute();
+        }
 
-        var c = new Chatter.DisplayText(mod.getChatter(), "Movement");
-        c.append(movePiece(this, currentPos));
-        c.execute();
-        c.append(changePieceCommand);
+        var mod = GameModule.getGameModule();
 
-        mod.sendAndLog(c);
+        // Movement, waypoint consumption and every reveal travel as one command with a single chat line,
+        // so the traffic and log size of a move do not grow with the number of contacts.
+        Command c = new NullCommand();
+        c = c.append(movePiece(this, currentPos));
+        c = c.append(consumeCommand);
 
-        tryDetectTargets();
-    }
+        var passed = new ArrayList<String>();
+        var revealed = new ArrayList<String>();
+        var lost = new ArrayList<String>();
+        c = c.append(VisibilityEngine.getInstance().refresh(moves, passed, revealed, lost));
 
-    void tryDetectTargets(){
-        var mod = GameModule.getGameModule();
+        var message = "Movement" + VisibilityEngine.describe(passed, revealed, lost);
+        var summary = new Chatter.DisplayText(mod.getChatter(), message);
+        summary.execute();
+        summary.append(c);
 
-        // Fog-of-War processing
-        var mySide = getProperty("Side"); // Side is assigned from a Marker
-        var myPosition = getPosition();
-        if(mySide != null){
-            for(var p : mod.getGameState().getAllPieces()){ // getMap().getAllPieces if you want to get top stacks only
-                var target = Decorator.getDecorator(p, AircraftSheet.class);
-                if(target != null && target != this){
-                    var targetSide = p.getProperty("Side");
-                    if(!mySide.equals(targetSide)){
-                        var targetPos = p.getPosition();
-                        var detDist = myPosition.distance(targetPos);
-                        if(detDist <= mediumDetectionRange){
-                            var hiddenBy = p.getProperty(Hideable.HIDDEN_BY); // Hideable is the internal name of Invisible, check Vassal Source code for detail
-                            if(hiddenBy != null){
-                                var c = new Chatter.DisplayText(mod.getChatter(), "New Contact!");
-                                c.execute();
-
-                                var changeTracker = new ChangeTracker(p);
-                                p.setProperty(Hideable.HIDDEN_BY, null);
-                                c.append(changeTracker.getChangeCommand());
-                                mod.sendAndLog(c);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        Perf.sendAndLog(summary);
+        Perf.stop(Perf.MOVE_APPLY, t0);
     }
 
     Command movePiece(GamePiece gp, Point dest)
@@ -292,6 +369,38 @@ public class AircraftSheet extends Decorator implements MouseListener {
         return c;
     }
 
+    // Every position or map change of the piece passes through the decorator chain, which keeps the spatial index current.
+    @Override
+    public void setPosition(Point p){
+        var before = getMap() == null ? null : extent();
+        super.setPosition(p);
+        AircraftIndex.getInstance().update(this);
+        repaintExtent(before); // Vassal repaints the counter, the ring and routes move with it
+    }
+
+    @Override
+    public void setMap(Map m){
+        var oldMap = getMap();
+        if(oldMap != null && oldMap != m){
+            oldMap.getView().repaint(oldMap.mapToComponent(extent()));
+        }
+        super.setMap(m);
+        AircraftIndex.getInstance().update(this);
+        repaintExtent(null);
+    }
+
+    // Selecting shows the routes, deselecting hides them.
+    @Override
+    public void setProperty(Object key, Object val){
+        if(Properties.SELECTED.equals(key) && getMap() != null){
+            var before = extent();
+            super.setProperty(key, val);
+            repaintExtent(before);
+            return;
+        }
+        super.setProperty(key, val);
+    }
+
     @Override
     public String getDescription() {
         return "AircraftSheet";
@@ -302,70 +411,213 @@ public class AircraftSheet extends Decorator implements MouseListener {
         return null;
     }
 
+    // https://stackoverflow.com/questions/9771924/animating-dashed-line-with-java-awt-basicstroke
+    // Strokes and colors are immutable, so every piece shares them instead of allocating them on each paint.
+    private static final BasicStroke ROUTE_STROKE = new BasicStroke(
+            3f,
+            BasicStroke.CAP_ROUND,
+            BasicStroke.JOIN_MITER,
+            1.5f, //miter limit
+            new float[]{5.0f, 5.0f},
+            0
+    );
+    private static final Color RING_COLOR = Color.BLUE;
+    private static final Color ROUTE_COLOR = new Color(0, 0, 0);
+    private static final Color PLOT_COLOR = new Color(100, 100, 100);
+
+    // Route in drawing coordinates, rebuilt only when zoom, os_scale, the piece position or the waypoints change.
+    private static final class RouteCache {
+        private final Path2D.Double path = new Path2D.Double();
+        private int[] xs = new int[0]; // vertices of `path`, used to cull segments outside the clip
+        private int[] ys = new int[0];
+        private int count;
+        private WaypointPath route;
+        private int version;
+        private double zoom;
+        private double osScale;
+        private int x;
+        private int y;
+
+        Path2D get(Map map, double osScale, Point pos, WaypointPath route){
+            var zoom = map.getZoom();
+            if(route != this.route || route.version() != version || zoom != this.zoom || osScale != this.osScale
+                    || pos.x != x || pos.y != y){
+                this.route = route;
+                version = route.version();
+                this.zoom = zoom;
+                this.osScale = osScale;
+                x = pos.x;
+                y = pos.y;
+
+                count = route.size() + 1;
+                if(xs.length < count){
+                    xs = new int[count];
+                    ys = new int[count];
+                }
+                xs[0] = map.mapToDrawing(pos.x, osScale);
+                ys[0] = map.mapToDrawing(pos.y, osScale);
+                for(var i = 0; i < route.size(); i++){
+                    xs[i + 1] = map.mapToDrawing(route.x(i), osScale);
+                    ys[i + 1] = map.mapToDrawing(route.y(i), osScale);
+                }
+
+                path.reset();
+                path.moveTo(xs[0], ys[0]);
+                for(var i = 1; i < count; i++){
+                    path.lineTo(xs[i], ys[i]);
+                }
+            }
+            return path;
+        }
+
+        // Strokes the whole path when it is on screen, otherwise only the segments crossing the clip.
+        void draw(Graphics2D g2d, Rectangle clip){
+            if(clip == null || clip.contains(path.getBounds())){
+                g2d.draw(path);
+                return;
+            }
+            var area = new Rectangle(clip);
+            area.grow(STROKE_PAD, STROKE_PAD);
+            for(var i = 1; i < count; i++){
+                if(area.intersectsLine(xs[i - 1], ys[i - 1], xs[i], ys[i])){
+                    g2d.drawLine(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+                }
+            }
+        }
+    }
+
+    // Half the route stroke width, rounded up, so culling and bounding boxes never clip a visible line.
+    private static final int STROKE_PAD = 2;
+
+    private final RouteCache routeCache = new RouteCache();
+    private final RouteCache plotCache = new RouteCache();
+
+    // Range ring in drawing coordinates, keyed the same way as the routes plus the range itself.
+    private final Ellipse2D.Double ring = new Ellipse2D.Double();
+    private double ringZoom;
+    private double ringOsScale;
+    private int ringX;
+    private int ringY;
+    private int ringRange = -1;
+
     @Override
     public void draw(Graphics g, int x, int y, Component obs, double zoom){
         piece.draw(g, x, y, obs, zoom); // delegate to the inner piece
+        var t0 = Perf.start(); // only the trait itself is timed
+
+        var g2d = (Graphics2D)g;
+        final double os_scale = g2d.getDeviceConfiguration().getDefaultTransform().getScaleX();
 
         if(mediumDetectionRange > 0){
-            var g2d = (Graphics2D)g;
-            g2d.setColor(Color.BLUE);
+            g2d.setColor(RING_COLOR);
 
             // Now mediumDetectionRange is treated as map coordinate instead of drawing coordinate.
-            // var r = mediumDetectionRange;
-            final double os_scale = g2d.getDeviceConfiguration().getDefaultTransform().getScaleX();
-            var r = getMap().mapToDrawing(mediumDetectionRange, os_scale);
-
-            var xs = x - r;
-            var ys = y - r;
+            var mapZoom = getMap().getZoom();
+            if(mediumDetectionRange != ringRange || x != ringX || y != ringY || mapZoom != ringZoom || os_scale != ringOsScale){
+                ringRange = mediumDetectionRange;
+                ringX = x;
+                ringY = y;
+                ringZoom = mapZoom;
+                ringOsScale = os_scale;
+
+                var r = getMap().mapToDrawing(mediumDetectionRange, os_scale);
+                ring.setFrame(x - r, y - r, 2 * r, 2 * r);
+            }
 
-            g2d.drawOval(xs, ys, 2 * r, 2 * r);
+            // Skip the ring when its outline is outside the clip, or when the clip lies entirely inside it.
+            var clip = g2d.getClipBounds();
+            if(clip == null || (ring.intersects(clip) && !ring.contains(clip))){
+                g2d.draw(ring);
+            }
         }
 
         if(isSelected()){
             if(!waypoints.isEmpty()){
-                drawWaypoints(g, waypoints, new Color(0,0,0));
+                drawWaypoints(g, routeCache, waypoints, ROUTE_COLOR);
             }
             if(!tempWaypoints.isEmpty()){
-                drawWaypoints(g, tempWaypoints, new Color(100, 100, 100));
+                drawWaypoints(g, plotCache, tempWaypoints, PLOT_COLOR);
             }
         }
+        if(rubberEnd != null){
+            drawRubberBand(g2d, os_scale);
+        }
+        Perf.stop(Perf.DRAW, t0);
     }
 
-    void drawWaypoints(Graphics g, ArrayList<Point> waypoints, Color color){
-        // TODO: Move to static or utilities
-        // https://stackoverflow.com/questions/9771924/animating-dashed-line-with-java-awt-basicstroke
-        float dash[] = {5.0f,5.0f};
-        BasicStroke dashedStroke = new BasicStroke(
-                3f,
-                BasicStroke.CAP_ROUND,
-                BasicStroke.JOIN_MITER,
-                1.5f, //miter limit
-                dash,
-                0
-        );
+    void drawWaypoints(Graphics g, RouteCache cache, WaypointPath waypoints, Color color){
+        var t0 = Perf.start();
         final Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(dashedStroke);
-
-        g2d.setColor(color);
-
         final double os_scale = g2d.getDeviceConfiguration().getDefaultTransform().getScaleX();
-        var map = piece.getMap();
 
-        var p0 = piece.getPosition();
-        var pp = p0;
-        for(var p: waypoints) {
-            var ppd = map.mapToDrawing(pp, os_scale);
-            var pd = map.mapToDrawing(p, os_scale);
-            g.drawLine(ppd.x, ppd.y, pd.x, pd.y);
-            pp = p;
-        }
+        var oldStroke = g2d.getStroke();
+        g2d.setStroke(ROUTE_STROKE);
+        g2d.setColor(color);
+        cache.get(piece.getMap(), os_scale, piece.getPosition(), waypoints);
+        cache.draw(g2d, g2d.getClipBounds());
+        g2d.setStroke(oldStroke);
+        Perf.stop(Perf.DRAW_WAYPOINTS, t0);
     }
 
+    // The counter's own box. Vassal sizes drag images, the stack viewer and stack layout with it, so the ring and the
+    // routes stay out of it and every change to them repaints extent() explicitly instead.
     @Override
     public Rectangle boundingBox() {
         return piece.boundingBox(); // delegate to the inner piece
     }
 
+    // Area covered by the piece, its ring, its routes while selected and the plotting preview, in map coordinates.
+    Rectangle extent(){
+        var pos = getPosition();
+        var box = piece.boundingBox();
+        box.translate(pos.x, pos.y);
+        var map = getMap();
+        // STROKE_PAD is in drawing pixels, so it grows in map units when zoomed out.
+        var pad = map == null ? STROKE_PAD : (int)Math.ceil(STROKE_PAD / map.getZoom()) + 1;
+        if(mediumDetectionRange > 0){
+            var r = mediumDetectionRange + pad;
+            box.add(new Rectangle(pos.x - r, pos.y - r, 2 * r, 2 * r));
+        }
+        if(isSelected() && map != null){
+            addRoute(box, waypoints, pad);
+            addRoute(box, tempWaypoints, pad);
+        }
+        var rubber = rubberArea();
+        if(rubber != null){
+            box.add(rubber);
+        }
+        return box;
+    }
+
+    private static void addRoute(Rectangle box, WaypointPath route, int pad){
+        if(route.isEmpty()){
+            return;
+        }
+        var bounds = route.bounds();
+        bounds.grow(pad, pad);
+        box.add(bounds);
+    }
+
+    // Repaints only the union of the given extent and the current one.
+    void repaintExtent(Rectangle before){
+        if(getMap() == null){
+            return;
+        }
+        var area = extent();
+        if(before != null){
+            area.add(before);
+        }
+        repaintArea(area);
+    }
+
+    // Repaints `area` (map coordinates) of the map view, nothing when either is null.
+    private void repaintArea(Rectangle area){
+        var map = getMap();
+        if(map != null && area != null){
+            map.getView().repaint(map.mapToComponent(area));
+        }
+    }
+
     @Override
     public Shape getShape() {
         return piece.getShape(); // delegate to the inner piece
@@ -376,8 +628,6 @@ public class AircraftSheet extends Decorator implements MouseListener {
         return piece.getName(); // delegate to the inner piece
     }
 
-    static Random rand = new Random();
-
     @Override
     public void mouseClicked(MouseEvent e) {
 //        switch(mouseMode){
@@ -391,33 +641,266 @@ public class AircraftSheet extends Decorator implements MouseListener {
     }
 
     void handleFire(MouseEvent e){
-        getMap().popMouseListener(this); // restore default behaviour
-        mouseMode = null;
+        var salvo = Salvo.active();
+        if(salvo == null){
+            return; // cancelled, the listener is gone already
+        }
 
         var mapPos = e.getPoint(); // Position in the map coordinate
         // JOptionPane.showMessageDialog(null, mapPos);
-        var piece = getMap().findPiece(e.getPoint(), PieceFinder.PIECE_IN_STACK);
-        if(piece != null){
-            var roll = rand.nextDouble();
-            var hit = roll <= 0.5;
+        var piece = getMap().findPiece(mapPos, PieceFinder.PIECE_IN_STACK);
+
+        if(salvo.isSingle()){
+            getMap().popMouseListener(this); // restore default behaviour
+            mouseMode = null;
+            Salvo.end();
+            if(piece != null && salvo.toggleTarget(piece)){
+                fire(salvo);
+            }
+        }else if(piece != null){
+            var added = salvo.toggleTarget(piece);
+            GameModule.getGameModule().getChatter().show(String.format("- Salvo of %d: %s %s (%d targets)",
+                    salvo.shooters.size(), added ? "targeting" : "dropped", piece.getName(), salvo.targets.size()));
+        }
+    }
 
-            var mod = GameModule.getGameModule();
-            var c = new Chatter.DisplayText(mod.getChatter(), String.format("Firing Resolution: %f => %b", roll, hit));
+    // Resolves the salvo and sends everything it did as one command.
+    private void fire(Salvo salvo){
+        var c = salvo.resolve();
+        c.execute();
+        Perf.sendAndLog(c);
+    }
+
+    // Previews get the key once per selected piece like every command, but one dialog is enough:
+    // it is opened by the aircraft targeting a salvo, or else by the first selected aircraft.
+    private boolean isPreviewLeader(){
+        var salvo = Salvo.active();
+        if(salvo != null && salvo.contains(this)){
+            return mouseMode == MouseMode.FIRING;
+        }
+        for(var p : KeyBuffer.getBuffer().asList()){
+            var sheet = Decorator.getDecorator(p, AircraftSheet.class);
+            if(sheet != null){
+                return sheet == this;
+            }
+        }
+        return true;
+    }
+
+    // Odds of the salvo being targeted, or of the selected aircraft firing at every enemy they currently see.
+    void previewFire(){
+        int shooters, targets;
+        var salvo = Salvo.active();
+        if(salvo != null && salvo.contains(this)){
+            shooters = salvo.shooters.size();
+            targets = salvo.targets.size();
+        }else{
+            var sheets = new ArrayList<AircraftSheet>();
+            sheets.add(this);
+            for(var p : KeyBuffer.getBuffer().asList()){
+                var sheet = (AircraftSheet)Decorator.getDecorator(p, AircraftSheet.class);
+                if(sheet != null && sheet != this && sheet.getMap() == getMap()){
+                    sheets.add(sheet);
+                }
+            }
+            var seen = new HashSet<AircraftSheet>();
+            for(var sheet : sheets){
+                var side = AircraftIndex.sideOf(sheet);
+                if(!side.isEmpty() && sheet.getMap() != null){
+                    seen.addAll(AircraftIndex.getInstance().findEnemies(sheet.getMap(), side, sheet.getPosition(), sheet.mediumDetectionRange));
+                }
+            }
+            shooters = sheets.size();
+            targets = seen.size();
+        }
+        var mod = GameModule.getGameModule();
+        if(targets == 0){
+            mod.getChatter().show("- Fire odds: no targets, pick targets with Fire or move into detection range");
+            return;
+        }
+        OddsPreview.fire(shooters, targets).start(mod.getPlayerWindow());
+    }
 
-            if(hit){
-                c.append(new RemovePiece(piece));
+    // Odds of this aircraft being detected before it reaches its last waypoint.
+    void previewMove(){
+        var mod = GameModule.getGameModule();
+        var map = getMap();
+        if(map == null || waypoints.isEmpty()){
+            mod.getChatter().show("- Move odds: plot waypoints first");
+            return;
+        }
+        var side = AircraftIndex.sideOf(this);
+        var enemies = new ArrayList<OddsPreview.Enemy>();
+        for(var p : mod.getGameState().getAllPieces()){
+            var sheet = (AircraftSheet)Decorator.getDecorator(p, AircraftSheet.class);
+            if(sheet != null && sheet.getMap() == map){
+                var enemySide = AircraftIndex.sideOf(sheet);
+                if(!enemySide.isEmpty() && !enemySide.equals(side)){
+                    var pos = sheet.getPosition();
+                    enemies.add(new OddsPreview.Enemy(pos.x, pos.y, sheet.waypoints.copy(), sheet.getMovementAllowance(), sheet.mediumDetectionRange));
+                }
             }
-            c.execute();
-            mod.sendAndLog(c);
         }
+        var start = getPosition();
+        OddsPreview.move(start.x, start.y, waypoints.copy(), getMovementAllowance(), enemies).start(mod.getPlayerWindow());
     }
 
-    ArrayList<Point> waypoints = new ArrayList<Point>();
-    ArrayList<Point> tempWaypoints = new ArrayList<Point>();
+    WaypointPath waypoints = new WaypointPath();
+    WaypointPath tempWaypoints = new WaypointPath();
 
     void handleWaypointPlotting(MouseEvent e){
-        tempWaypoints.add(e.getPoint());
-        getMap().repaint();
+        // Only the new leg and the preview around it change, the rest of the route stays as painted.
+        var dirty = rubberArea();
+        var from = plotStart();
+        var p = e.getPoint();
+        tempWaypoints.add(p.x, p.y);
+        rubberEnd = p;
+        repaintArea(union(union(dirty, rubberArea()), legArea(from, p)));
+    }
+
+    // Live preview of the leg being plotted: it follows the cursor from the last plotted point, labelled with the
+    // route length and the allowance left in the last turn. Mouse moves repaint only the old and new preview.
+    private Point rubberEnd; // map coordinates, null when not plotting
+    private MouseMotionListener rubberBand;
+
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+    private static final int LABEL_GAP = 8; // component pixels between cursor and label
+    private static Font scaledLabelFont = LABEL_FONT;
+
+    private int plottedVersion = -1;
+    private Point plottedFrom;
+    private double plottedLength;
+
+    private void startRubberBand(){
+        if(rubberBand == null){
+            rubberBand = new MouseMotionAdapter(){
+                @Override
+                public void mouseMoved(MouseEvent e){
+                    moveRubberBand(e);
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e){
+                    moveRubberBand(e);
+                }
+            };
+        }
+        getMap().getView().addMouseMotionListener(rubberBand);
+    }
+
+    private void stopRubberBand(){
+        var map = getMap();
+        if(map != null && rubberBand != null){
+            map.getView().removeMouseMotionListener(rubberBand);
+        }
+        var dirty = rubberArea();
+        rubberEnd = null;
+        repaintArea(dirty);
+    }
+
+    private void moveRubberBand(MouseEvent e){
+        var map = getMap();
+        if(map == null || mouseMode != MouseMode.WAYPOINTPLOTTING){
+            return;
+        }
+        var end = map.componentToMap(e.getPoint()); // motion events come straight from the view
+        if(end.equals(rubberEnd)){
+            return;
+        }
+        var dirty = rubberArea();
+        rubberEnd = end;
+        repaintArea(union(dirty, rubberArea()));
+    }
+
+    private static Rectangle union(Rectangle a, Rectangle b){
+        if(a == null){
+            return b;
+        }
+        if(b != null){
+            a.add(b);
+        }
+        return a;
+    }
+
+    private Point plotStart(){
+        var n = tempWaypoints.size();
+        return n == 0 ? getPosition() : new Point(tempWaypoints.x(n - 1), tempWaypoints.y(n - 1));
+    }
+
+    // Bounds of a leg in map coordinates, padded for the stroke.
+    private Rectangle legArea(Point from, Point to){
+        var pad = (int)Math.ceil(STROKE_PAD / getMap().getZoom()) + 1;
+        var area = new Rectangle(from);
+        area.add(to);
+        area.grow(pad, pad);
+        return area;
+    }
+
+    // Map area of the pending leg and its label, null when there is none.
+    private Rectangle rubberArea(){
+        var map = getMap();
+        if(rubberEnd == null || map == null){
+            return null;
+        }
+        var area = legArea(plotStart(), rubberEnd);
+        var metrics = map.getView().getFontMetrics(LABEL_FONT);
+        var zoom = map.getZoom();
+        var w = (int)Math.ceil((LABEL_GAP + metrics.stringWidth(rubberLabel()) + 2) / zoom);
+        var h = (int)Math.ceil((LABEL_GAP + metrics.getHeight() + 2) / zoom);
+        area.add(new Rectangle(rubberEnd.x, rubberEnd.y - h, w, h + 1));
+        return area;
+    }
+
+    // Length of the plotted legs, summed again only after a click or a move of the piece.
+    private double plottedLength(){
+        var pos = getPosition();
+        if(plottedVersion != tempWaypoints.version() || !pos.equals(plottedFrom)){
+            plottedVersion = tempWaypoints.version();
+            plottedFrom = pos;
+            plottedLength = 0;
+            double x = pos.x, y = pos.y;
+            for(var i = 0; i < tempWaypoints.size(); i++){
+                plottedLength += Math.hypot(tempWaypoints.x(i) - x, tempWaypoints.y(i) - y);
+                x = tempWaypoints.x(i);
+                y = tempWaypoints.y(i);
+            }
+        }
+        return plottedLength;
+    }
+
+    private String rubberLabel(){
+        var pending = plotStart().distance(rubberEnd);
+        var total = plottedLength() + pending;
+        var allowance = getMovementAllowance();
+        if(allowance <= 0){
+            return String.format("%.0f (+%.0f)", total, pending);
+        }
+        var rest = total % allowance;
+        var left = rest == 0 && total > 0 ? 0 : allowance - rest;
+        return String.format("%.0f (+%.0f) - %.1f turns, %.0f left", total, pending, total / allowance, left);
+    }
+
+    private void drawRubberBand(Graphics2D g2d, double os_scale){
+        var map = getMap();
+        var start = plotStart();
+        var x1 = map.mapToDrawing(start.x, os_scale);
+        var y1 = map.mapToDrawing(start.y, os_scale);
+        var x2 = map.mapToDrawing(rubberEnd.x, os_scale);
+        var y2 = map.mapToDrawing(rubberEnd.y, os_scale);
+
+        var oldStroke = g2d.getStroke();
+        g2d.setStroke(ROUTE_STROKE);
+        g2d.setColor(PLOT_COLOR);
+        g2d.drawLine(x1, y1, x2, y2);
+        g2d.setStroke(oldStroke);
+
+        // The label keeps its screen size whatever the zoom, scaled for HiDPI like the rest of the drawing.
+        if(scaledLabelFont.getSize2D() != LABEL_FONT.getSize2D() * (float)os_scale){
+            scaledLabelFont = LABEL_FONT.deriveFont(LABEL_FONT.getSize2D() * (float)os_scale);
+        }
+        g2d.setFont(scaledLabelFont);
+        var gap = (int)Math.round(LABEL_GAP * os_scale);
+        g2d.drawString(rubberLabel(), x2 + gap, y2 - gap);
     }
 
     @Override
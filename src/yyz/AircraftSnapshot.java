@@ -0,0 +1,254 @@
+package yyz;
+
+import VASSAL.build.AbstractBuildable;
+import VASSAL.build.Buildable;
+import VASSAL.build.GameModule;
+import VASSAL.build.module.GameComponent;
+import VASSAL.command.AddPiece;
+import VASSAL.command.Command;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.GamePiece;
+import VASSAL.tools.SequenceEncoder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Optional component saving the dynamic state of every AircraftSheet (range, route, concealedBy) as one columnar block
+// instead of inside each piece state. Register it in buildFile.xml with <yyz.AircraftSnapshot/>, next to
+// <yyz.YyzCommandEncoder/>.
+//
+// Saving: getRestoreCommand captures the columns and the piece state of every aircraft into a Restore command. Vassal
+// builds the AddPiece commands of the save before asking the components, so the Restore cannot rewrite them itself;
+// instead it carries its own compaction context: while YyzCommandEncoder encodes the save command holding it, the
+// AddPiece of a captured aircraft whose state is the captured one is written with the bare "~3" sheet state, and the
+// context ends with the Restore. AddPiece commands encoded at any other time, e.g. an undo sent while a log is being
+// recorded, or a log entry after the beginning state, keep the full state.
+// Loading: the pieces come up empty, then the Restore command decodes the block in one pass and hands each sheet its
+// slice. Saves made without the component keep the full per-piece state. Tools can read the block of a save in bulk
+// with Columns.decode.
+public class AircraftSnapshot extends AbstractBuildable implements GameComponent {
+    public static final String ID = "YyzSnapshot;";
+
+    // Columns of all aircraft: entry i owns points offsets[i] until offsets[i + 1].
+    public static final class Columns {
+        public final String[] ids;
+        public final int[] ranges;
+        public final int[] offsets;
+        public final WaypointPath points;
+        public final String[] concealedBy; // null entries for pieces not revealed by VisibilityEngine
+
+        public Columns(String[] ids, int[] ranges, int[] offsets, WaypointPath points, String[] concealedBy){
+            this.ids = ids;
+            this.ranges = ranges;
+            this.offsets = offsets;
+            this.points = points;
+            this.concealedBy = concealedBy;
+        }
+
+        public int size(){
+            return ids.length;
+        }
+
+        // count;ids;ranges;points;concealedBy. Ranges and route lengths go through WaypointCodec as (range, length)
+        // pairs and all routes as one path, so the block costs about as much as the per-piece states it replaces.
+        public String encode(){
+            var n = size();
+            var ids = new SequenceEncoder(',');
+            var concealed = new SequenceEncoder(',');
+            var header = new WaypointPath(n);
+            for(var i = 0; i < n; i++){
+                ids.append(this.ids[i]);
+                concealed.append(concealedBy[i] == null ? "" : concealedBy[i]);
+                header.add(ranges[i], offsets[i + 1] - offsets[i]);
+            }
+            var se = new SequenceEncoder(';');
+            se.append(n);
+            se.append(n == 0 ? "" : ids.getValue());
+            se.append(WaypointCodec.encode(header));
+            se.append(WaypointCodec.encode(points));
+            se.append(n == 0 ? "" : concealed.getValue());
+            return se.getValue();
+        }
+
+        // Inverse of encode. Throws IllegalArgumentException on a damaged block.
+        public static Columns decode(String s){
+            var sd = new SequenceEncoder.Decoder(s, ';');
+            var n = sd.nextInt(0);
+            var idList = new SequenceEncoder.Decoder(sd.nextToken(""), ',');
+            var header = new WaypointPath(n);
+            WaypointCodec.decode(sd.nextToken(""), header);
+            var points = new WaypointPath();
+            WaypointCodec.decode(sd.nextToken(""), points);
+            var concealedList = new SequenceEncoder.Decoder(sd.nextToken(""), ',');
+            if(header.size() != n){
+                throw new IllegalArgumentException("Snapshot of " + n + " aircraft has " + header.size() + " ranges");
+            }
+
+            var ids = new String[n];
+            var ranges = new int[n];
+            var offsets = new int[n + 1];
+            var concealedBy = new String[n];
+            for(var i = 0; i < n; i++){
+                ids[i] = idList.nextToken("");
+                ranges[i] = header.x(i);
+                offsets[i + 1] = offsets[i] + header.y(i);
+                var concealed = concealedList.nextToken("");
+                concealedBy[i] = concealed.isEmpty() ? null : concealed;
+            }
+            if(offsets[n] != points.size()){
+                throw new IllegalArgumentException("Snapshot routes have " + points.size() + " points, expected " + offsets[n]);
+            }
+            return new Columns(ids, ranges, offsets, points, concealedBy);
+        }
+    }
+
+    // Restores the captured state of every listed aircraft still in the game.
+    public static class Restore extends Command {
+        private final Columns columns;
+        private final Map<String, String> states; // piece id -> full piece state when captured, null once decoded
+
+        public Restore(Columns columns){
+            this(columns, null);
+        }
+
+        private Restore(Columns columns, Map<String, String> states){
+            this.columns = columns;
+            this.states = states;
+        }
+
+        public Columns getColumns(){
+            return columns;
+        }
+
+        // The Restore among the direct children of `save`, null if there is none.
+        static Restore of(Command save){
+            for(var c : save.getSubCommands()){
+                if(c instanceof Restore){
+                    return (Restore)c;
+                }
+            }
+            return null;
+        }
+
+        // The AddPiece to encode in place of `a` within the save holding this Restore: with the bare AircraftSheet
+        // state when `a` adds a captured aircraft in the captured state, so the block restores exactly what it drops.
+        AddPiece compact(AddPiece a){
+            var target = a.getTarget();
+            String captured = states == null || target == null ? null : states.get(target.getId());
+            if(captured == null || !captured.equals(a.getState())){
+                return a;
+            }
+            var bare = withSheetState(target, captured, AircraftSheet.STATE_V3);
+            return bare == null ? a : new AddPiece(target, bare);
+        }
+
+        @Override
+        protected void executeCommand(){
+            apply(GameModule.getGameModule().getGameState()::getPieceForId);
+        }
+
+        void apply(Function<String, GamePiece> pieceForId){
+            for(var i = 0; i < columns.size(); i++){
+                var piece = pieceForId.apply(columns.ids[i]);
+                var sheet = piece == null ? null : (AircraftSheet)Decorator.getDecorator(piece, AircraftSheet.class);
+                if(sheet != null){
+                    sheet.hydrate(columns.ranges[i], columns.points, columns.offsets[i], columns.offsets[i + 1], columns.concealedBy[i]);
+                }
+            }
+        }
+
+        @Override
+        protected Command myUndoCommand(){
+            return null;
+        }
+    }
+
+    @Override
+    public String[] getAttributeNames(){
+        return new String[0];
+    }
+
+    @Override
+    public void setAttribute(String key, Object value){
+    }
+
+    @Override
+    public String getAttributeValueString(String key){
+        return null;
+    }
+
+    @Override
+    public void addTo(Buildable parent){
+        GameModule.getGameModule().getGameState().addGameComponent(this);
+    }
+
+    @Override
+    public void setup(boolean gameStarting){
+    }
+
+    @Override
+    public Command getRestoreCommand(){
+        var sheets = new ArrayList<AircraftSheet>();
+        for(var p : GameModule.getGameModule().getGameState().getAllPieces()){
+            var sheet = (AircraftSheet)Decorator.getDecorator(p, AircraftSheet.class);
+            if(sheet != null){
+                sheets.add(sheet);
+            }
+        }
+        return sheets.isEmpty() ? null : capture(sheets);
+    }
+
+    // Restore of the current state of `sheets`.
+    static Restore capture(List<AircraftSheet> sheets){
+        var n = sheets.size();
+        var ids = new String[n];
+        var ranges = new int[n];
+        var offsets = new int[n + 1];
+        var points = new WaypointPath();
+        var concealedBy = new String[n];
+        var states = new HashMap<String, String>();
+        for(var i = 0; i < n; i++){
+            var sheet = sheets.get(i);
+            var outermost = Decorator.getOutermost(sheet);
+            ids[i] = outermost.getId();
+            ranges[i] = sheet.mediumDetectionRange;
+            points.addAll(sheet.waypoints);
+            offsets[i + 1] = points.size();
+            concealedBy[i] = sheet.concealedBy;
+            states.put(ids[i], outermost.getState());
+        }
+        return new Restore(new Columns(ids, ranges, offsets, points, concealedBy), states);
+    }
+
+    // `state` of `piece` with the AircraftSheet layer replaced by `sheetState`, split along the decorators the way
+    // Decorator.getState joins them. Null when the piece has no sheet or the state does not split back into itself.
+    static String withSheetState(GamePiece piece, String state, String sheetState){
+        if(!(piece instanceof Decorator)){
+            return null;
+        }
+        var sd = new SequenceEncoder.Decoder(state, '\t');
+        var mine = sd.nextToken("");
+        var inner = sd.nextToken("");
+        var same = new SequenceEncoder(mine, '\t');
+        same.append(inner);
+        if(!same.getValue().equals(state)){
+            return null;
+        }
+
+        var decorator = (Decorator)piece;
+        if(decorator instanceof AircraftSheet){
+            mine = sheetState;
+        }else{
+            inner = withSheetState(decorator.getInner(), inner, sheetState);
+            if(inner == null){
+                return null;
+            }
+        }
+        var se = new SequenceEncoder(mine, '\t');
+        se.append(inner);
+        return se.getValue();
+    }
+}
@@ -0,0 +1,233 @@
+package yyz;
+
+import VASSAL.build.AbstractBuildable;
+import VASSAL.build.Buildable;
+import VASSAL.build.GameModule;
+import VASSAL.build.module.Chatter;
+import VASSAL.command.Command;
+import VASSAL.command.NullCommand;
+import VASSAL.counters.Decorator;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Toolbar button opening one table of every AircraftSheet piece, for setting up large scenarios without a dialog per
+// aircraft. Edited cells are marked dirty and drawn in bold; Apply sends all of them as a single command with one
+// visibility update, nothing is sent while editing. Reload (and reopening the window) discards unapplied edits.
+// Register it in buildFile.xml with <yyz.AircraftTable/>, next to <yyz.MovementPhase/>.
+public class AircraftTable extends AbstractBuildable {
+    private JDialog frame;
+    private final Model model = new Model();
+
+    @Override
+    public String[] getAttributeNames(){
+        return new String[0];
+    }
+
+    @Override
+    public void setAttribute(String key, Object value){
+    }
+
+    @Override
+    public String getAttributeValueString(String key){
+        return null;
+    }
+
+    @Override
+    public void addTo(Buildable parent){
+        var button = new JButton("Aircraft Table");
+        button.setToolTipText("Edit the sheets of all aircraft in one table");
+        button.addActionListener(e -> open());
+        GameModule.getGameModule().getToolBar().add(button);
+    }
+
+    public void open(){
+        if(frame == null){
+            var win = GameModule.getGameModule().getPlayerWindow();
+            frame = new JDialog(win, "Aircraft Table", false);
+
+            var table = new JTable(model);
+            table.setAutoCreateRowSorter(true);
+            table.setFillsViewportHeight(true);
+            table.setDefaultRenderer(Integer.class, new DirtyRenderer());
+
+            var apply = new JButton("Apply");
+            apply.addActionListener(e -> {
+                if(table.isEditing()){
+                    table.getCellEditor().stopCellEditing();
+                }
+                apply();
+            });
+            var reload = new JButton("Reload");
+            reload.addActionListener(e -> {
+                if(table.isEditing()){
+                    table.getCellEditor().cancelCellEditing();
+                }
+                model.reload();
+            });
+            var buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            buttons.add(reload);
+            buttons.add(apply);
+
+            frame.add(new JScrollPane(table), BorderLayout.CENTER);
+            frame.add(buttons, BorderLayout.SOUTH);
+            frame.setSize(640, 480);
+            frame.setLocationRelativeTo(win);
+        }
+        model.reload();
+        frame.setVisible(true);
+    }
+
+    // One command for every dirty cell whose piece still exists, then a fresh snapshot.
+    private void apply(){
+        var mod = GameModule.getGameModule();
+        var gs = mod.getGameState();
+        Command c = new NullCommand();
+        var changed = 0;
+        for(var row : model.rows){
+            if(!row.rangeDirty){
+                continue;
+            }
+            var piece = gs.getPieceForId(row.pieceId);
+            var sheet = piece == null ? null : (AircraftSheet)Decorator.getDecorator(piece, AircraftSheet.class);
+            if(sheet == null || sheet.mediumDetectionRange == row.range){
+                continue; // removed meanwhile, or edited back to what it is
+            }
+            var setRange = new SetDetectionRange(row.pieceId, sheet.mediumDetectionRange, row.range); // old value read now, for undo
+            setRange.execute();
+            c = c.append(setRange);
+            changed++;
+        }
+        if(changed > 0){
+            var revealed = new ArrayList<String>();
+            var lost = new ArrayList<String>();
+            c = c.append(VisibilityEngine.getInstance().refresh(revealed, lost));
+
+            var message = String.format("Aircraft Table - %d aircraft changed", changed) + VisibilityEngine.describe(revealed, lost);
+            var summary = new Chatter.DisplayText(mod.getChatter(), message);
+            summary.execute();
+            summary.append(c);
+            Perf.sendAndLog(summary);
+        }
+        model.reload();
+    }
+
+    // Snapshot of one piece. Only the range is editable, the rest is shown to tell the aircraft apart.
+    private static final class Row {
+        final String pieceId;
+        final String name;
+        final String side;
+        final String map;
+        final int x;
+        final int y;
+        final int waypoints;
+        int range;
+        boolean rangeDirty;
+
+        Row(AircraftSheet sheet){
+            var outermost = Decorator.getOutermost(sheet);
+            var pos = sheet.getPosition();
+            pieceId = outermost.getId();
+            name = outermost.getName();
+            side = AircraftIndex.sideOf(sheet);
+            map = sheet.getMap() == null ? "" : sheet.getMap().getMapName();
+            x = pos == null ? 0 : pos.x;
+            y = pos == null ? 0 : pos.y;
+            waypoints = sheet.waypoints.size();
+            range = sheet.mediumDetectionRange;
+        }
+    }
+
+    private static final class Model extends AbstractTableModel {
+        static final String[] COLUMNS = {"Name", "Side", "Map", "X", "Y", "Waypoints", "Medium Range"};
+        static final int RANGE = 6;
+
+        final List<Row> rows = new ArrayList<>();
+
+        void reload(){
+            rows.clear();
+            for(var p : GameModule.getGameModule().getGameState().getAllPieces()){
+                var sheet = (AircraftSheet)Decorator.getDecorator(p, AircraftSheet.class);
+                if(sheet != null){
+                    rows.add(new Row(sheet));
+                }
+            }
+            fireTableDataChanged();
+        }
+
+        boolean isDirty(int row, int column){
+            return column == RANGE && rows.get(row).rangeDirty;
+        }
+
+        @Override
+        public int getRowCount(){
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount(){
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column){
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column){
+            return column >= 3 ? Integer.class : String.class;
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column){
+            return column == RANGE;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column){
+            var r = rows.get(row);
+            switch(column){
+                case 0: return r.name;
+                case 1: return r.side;
+                case 2: return r.map;
+                case 3: return r.x;
+                case 4: return r.y;
+                case 5: return r.waypoints;
+                default: return r.range;
+            }
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column){
+            if(column != RANGE || !(value instanceof Integer)){
+                return;
+            }
+            var range = Math.max(0, (Integer)value);
+            var r = rows.get(row);
+            if(range != r.range){
+                r.range = range;
+                r.rangeDirty = true;
+                fireTableCellUpdated(row, column);
+            }
+        }
+    }
+
+    private final class DirtyRenderer extends DefaultTableCellRenderer {
+        DirtyRenderer(){
+            setHorizontalAlignment(SwingConstants.RIGHT);
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column){
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            var dirty = model.isDirty(table.convertRowIndexToModel(row), table.convertColumnIndexToModel(column));
+            setFont(dirty ? getFont().deriveFont(Font.BOLD) : getFont());
+            return this;
+        }
+    }
+}
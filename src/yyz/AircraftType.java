@@ -0,0 +1,49 @@
+package yyz;
+
+import VASSAL.tools.SequenceEncoder;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Parsed AircraftSheet type ("AircraftSheet;<movement allowance>;<simplify tolerance>;<max waypoints>"). Types are
+// frozen during a game, so every piece of the same definition shares one instance and a type string is parsed once,
+// not on every clone or decode. Missing trailing fields take their defaults.
+final class AircraftType {
+    static final double DEFAULT_MOVEMENT_ALLOWANCE = 100.;
+    // Map units a plotted point may deviate from the simplified route, 0 keeps every click. Both are off unless the
+    // type sets them, so existing modules plot and load routes as before.
+    static final double DEFAULT_SIMPLIFY_TOLERANCE = 0.;
+    // Waypoints a piece keeps at most, 0 for no limit.
+    static final int DEFAULT_MAX_WAYPOINTS = 0;
+
+    private static final ConcurrentHashMap<String, AircraftType> cache = new ConcurrentHashMap<>();
+
+    final String type;
+    final double movementAllowance;
+    final double simplifyTolerance;
+    final int maxWaypoints;
+
+    private AircraftType(String type, double movementAllowance, double simplifyTolerance, int maxWaypoints){
+        this.type = type;
+        this.movementAllowance = movementAllowance;
+        this.simplifyTolerance = simplifyTolerance;
+        this.maxWaypoints = maxWaypoints;
+    }
+
+    // Waypoints beyond the limit in a route of `size` points.
+    int excessWaypoints(int size){
+        return maxWaypoints > 0 ? Math.max(0, size - maxWaypoints) : 0;
+    }
+
+    static AircraftType of(String type){
+        return cache.computeIfAbsent(type, AircraftType::parse);
+    }
+
+    private static AircraftType parse(String type){
+        var sd = new SequenceEncoder.Decoder(type, ';');
+        sd.nextToken(); // Drop head;
+        var movementAllowance = sd.nextDouble(DEFAULT_MOVEMENT_ALLOWANCE); // "AircraftSheet;" predates the allowance
+        var simplifyTolerance = sd.nextDouble(DEFAULT_SIMPLIFY_TOLERANCE);
+        var maxWaypoints = sd.nextInt(DEFAULT_MAX_WAYPOINTS);
+        return new AircraftType(type, movementAllowance, simplifyTolerance, maxWaypoints);
+    }
+}
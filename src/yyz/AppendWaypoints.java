@@ -0,0 +1,45 @@
+package yyz;
+
+import VASSAL.command.Command;
+
+// Adds waypoints to the end of a route. The undo form (`retract`) removes the same number of points from the end.
+public class AppendWaypoints extends WaypointCommand {
+    public static final String ID = "YyzAppendWaypoints;";
+
+    private final WaypointPath points;
+    private final boolean retract;
+
+    public AppendWaypoints(String pieceId, WaypointPath points, boolean retract){
+        super(pieceId);
+        this.points = points;
+        this.retract = retract;
+    }
+
+    public WaypointPath getPoints(){
+        return points;
+    }
+
+    public boolean isRetract(){
+        return retract;
+    }
+
+    @Override
+    protected void executeCommand(){
+        var sheet = findSheet();
+        if(sheet == null){
+            return;
+        }
+        var before = sheet.extent();
+        if(retract){
+            sheet.waypoints.retract(points.size());
+        }else{
+            sheet.waypoints.addAll(points);
+        }
+        sheet.repaintExtent(before);
+    }
+
+    @Override
+    protected Command myUndoCommand(){
+        return new AppendWaypoints(pieceId, points, !retract);
+    }
+}
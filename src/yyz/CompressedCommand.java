@@ -0,0 +1,111 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.command.Command;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Wrapper sending a large command as its raw-deflated, URL-safe Base64 encoded form. Batch moves, waypoint commits and
+// mass reveals repeat whole piece states in their ChangePiece commands, which deflate to a fraction of their size.
+// Executing and undoing the wrapper executes and undoes the wrapped command, so nothing else notices the difference.
+// Perf.sendAndLog wraps every command of the module whose encoded form reaches THRESHOLD characters.
+public class CompressedCommand extends Command {
+    public static final String ID = "YyzDeflate;";
+
+    // Below this the Base64 overhead eats most of the gain.
+    static final int THRESHOLD = 1024;
+
+    // Longest inflated command accepted from a peer or a log, in bytes. Far beyond any real command (a full scenario
+    // deflates to a few hundred KB), while a crafted payload could otherwise inflate until the heap runs out.
+    static final int MAX_EXPANDED = 8 << 20;
+
+    private final Command inner;
+    private String payload;
+
+    public CompressedCommand(Command inner, String payload){
+        this.inner = inner;
+        this.payload = payload;
+    }
+
+    // The command itself when its encoded form is short or does not shrink, the wrapper otherwise.
+    public static Command wrap(Command c, String encoded){
+        if(c == null || encoded == null || encoded.length() < THRESHOLD){
+            return c;
+        }
+        var payload = compress(encoded);
+        if(ID.length() + payload.length() >= encoded.length()){
+            return c;
+        }
+        return new CompressedCommand(c, payload);
+    }
+
+    public Command getInner(){
+        return inner;
+    }
+
+    // Deflated inner command, encoded on first use when the wrapper was built without it (undo commands).
+    public String getPayload(){
+        if(payload == null){
+            payload = compress(GameModule.getGameModule().encode(inner));
+        }
+        return payload;
+    }
+
+    @Override
+    protected void executeCommand(){
+        inner.execute();
+    }
+
+    @Override
+    protected Command myUndoCommand(){
+        var undo = inner.getUndoCommand();
+        return undo == null ? null : new CompressedCommand(undo, null);
+    }
+
+    static String compress(String encoded){
+        var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true); // raw deflate, the length is known from the text
+        deflater.setInput(encoded.getBytes(StandardCharsets.UTF_8));
+        deflater.finish();
+        var out = new ByteArrayOutputStream(encoded.length() / 4 + 16);
+        var buffer = new byte[8192];
+        while(!deflater.finished()){
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(out.toByteArray());
+    }
+
+    // Inverse of compress. Throws IllegalArgumentException on a damaged payload or one inflating beyond MAX_EXPANDED.
+    static String expand(String payload){
+        return expand(payload, MAX_EXPANDED);
+    }
+
+    static String expand(String payload, int maxExpanded){
+        var inflater = new Inflater(true);
+        try{
+            inflater.setInput(Base64.getUrlDecoder().decode(payload));
+            var out = new ByteArrayOutputStream((int)Math.min(payload.length() * 4L, maxExpanded));
+            var buffer = new byte[8192];
+            while(!inflater.finished()){
+                var n = inflater.inflate(buffer);
+                if(n == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                    throw new IllegalArgumentException("Truncated compressed command");
+                }
+                if(out.size() + n > maxExpanded){
+                    throw new IllegalArgumentException("Compressed command expands beyond " + maxExpanded + " bytes");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        }catch(DataFormatException e){
+            throw new IllegalArgumentException("Damaged compressed command", e);
+        }finally{
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package yyz;
+
+import VASSAL.command.Command;
+
+// Removes the first waypoints of a route, as reached by a move or dropped by a new plot.
+// The consumed points are kept so the undo form (`restore`) can put them back in front.
+// The partial position along the next leg travels in the MovePiece sent next to it.
+public class ConsumeWaypoints extends WaypointCommand {
+    public static final String ID = "YyzConsumeWaypoints;";
+
+    private final WaypointPath points;
+    private final boolean restore;
+
+    public ConsumeWaypoints(String pieceId, WaypointPath points, boolean restore){
+        super(pieceId);
+        this.points = points;
+        this.restore = restore;
+    }
+
+    public WaypointPath getPoints(){
+        return points;
+    }
+
+    public boolean isRestore(){
+        return restore;
+    }
+
+    @Override
+    protected void executeCommand(){
+        var sheet = findSheet();
+        if(sheet == null){
+            return;
+        }
+        var before = sheet.extent();
+        if(restore){
+            sheet.waypoints.prepend(points);
+        }else{
+            sheet.waypoints.consume(points.size());
+        }
+        sheet.repaintExtent(before);
+    }
+
+    @Override
+    protected Command myUndoCommand(){
+        return new ConsumeWaypoints(pieceId, points, !restore);
+    }
+}
@@ -0,0 +1,35 @@
+package yyz;
+
+import VASSAL.command.Command;
+
+// Wrapper carrying a command together with its encoded form, so a command Perf.sendAndLog already encoded for its
+// counters and the compression decision is not encoded a second time when Vassal sends and logs it. The encoded form is
+// written as it is, the other side decodes the wrapped command itself and never sees the wrapper.
+// Executing and undoing the wrapper executes and undoes the wrapped command, like CompressedCommand.
+public class EncodedCommand extends Command {
+    private final Command inner;
+    private final String encoded;
+
+    public EncodedCommand(Command inner, String encoded){
+        this.inner = inner;
+        this.encoded = encoded;
+    }
+
+    public Command getInner(){
+        return inner;
+    }
+
+    public String getEncoded(){
+        return encoded;
+    }
+
+    @Override
+    protected void executeCommand(){
+        inner.execute();
+    }
+
+    @Override
+    protected Command myUndoCommand(){
+        return inner.getUndoCommand();
+    }
+}
@@ -0,0 +1,330 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.BasicCommandEncoder;
+import VASSAL.command.ChangePiece;
+import VASSAL.command.Command;
+import VASSAL.command.MovePiece;
+import VASSAL.tools.SequenceEncoder;
+import VASSAL.tools.io.DeobfuscatingInputStream;
+import VASSAL.tools.io.ObfuscatingOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+// Headless compaction of .vlog/.vsav files written by this module, see README ("Compacting logs").
+//
+//   mvn -q compile exec:java -Dexec.mainClass=yyz.LogCompactor -Dexec.args="[--drop-narration] in.vlog out.vlog"
+//
+// Commands are split the way GameModule.encode joins them and the piece commands (ChangePiece, MovePiece and the
+// module's AppendWaypoints, ConsumeWaypoints and SetDetectionRange) are decoded through YyzCommandEncoder. Within a log
+// step, a piece command is merged into the command right before it (narration aside) when that one is of the same kind
+// for the same piece: changes and moves keep the first old and the last new value, appended and consumed waypoints are
+// concatenated, a change back to the old value disappears. Log steps are never merged, each one stays the step of the
+// player who sent it, so replaying shows the same steps in the same order, only without their intermediate states.
+// Every other command is copied verbatim, so nothing here needs a running GameModule. CompressedCommand wrappers are
+// expanded before merging.
+public class LogCompactor {
+    static final String SAVEFILE_ZIP_ENTRY = "savedGame"; // GameState.SAVEFILE_ZIP_ENTRY
+    static final String LOG = "LOG\t"; // BasicLogger.LOG
+    static final String CHAT = "CHAT"; // Chatter.DisplayText prefix
+
+    // DisplayText lines written by AircraftSheet, MovementPhase and the sheet dialog.
+    static final String[] NARRATION = {"Movement", "Set Waypoint", "Change Piece", "Advance All", "Aircraft Table"};
+
+    private final YyzCommandEncoder encoder = new YyzCommandEncoder();
+    private final boolean dropNarration;
+
+    int mergedChanges;
+    int droppedNarration;
+
+    public LogCompactor(boolean dropNarration){
+        this.dropNarration = dropNarration;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var dropNarration = false;
+        var files = new ArrayList<String>();
+        for(var arg : args){
+            if(arg.equals("--drop-narration")){
+                dropNarration = true;
+            }else{
+                files.add(arg);
+            }
+        }
+        if(files.size() != 2){
+            System.err.println("Usage: LogCompactor [--drop-narration] <input.vlog> <output.vlog>");
+            System.exit(2);
+        }
+
+        var in = new File(files.get(0));
+        var out = new File(files.get(1));
+        var compactor = new LogCompactor(dropNarration);
+
+        String saved;
+        try(var zip = new ZipFile(in)){
+            var entry = zip.getEntry(SAVEFILE_ZIP_ENTRY);
+            if(entry == null){
+                throw new IOException(in + " has no " + SAVEFILE_ZIP_ENTRY + " entry");
+            }
+            try(var stream = new DeobfuscatingInputStream(zip.getInputStream(entry))){
+                saved = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            var t0 = System.nanoTime();
+            var decodedBefore = compactor.decodeAll(saved);
+            var t1 = System.nanoTime();
+            var compacted = compactor.compact(saved);
+            var t2 = System.nanoTime();
+            var decodedAfter = compactor.decodeAll(compacted);
+            var t3 = System.nanoTime();
+
+            try(var zipOut = new ZipOutputStream(new FileOutputStream(out))){
+                var entries = zip.entries();
+                while(entries.hasMoreElements()){
+                    var e = entries.nextElement();
+                    zipOut.putNextEntry(new ZipEntry(e.getName()));
+                    if(e.getName().equals(SAVEFILE_ZIP_ENTRY)){
+                        var buffer = new ByteArrayOutputStream();
+                        try(var obfuscated = new ObfuscatingOutputStream(buffer)){
+                            obfuscated.write(compacted.getBytes(StandardCharsets.UTF_8));
+                        }
+                        zipOut.write(buffer.toByteArray());
+                    }else{
+                        try(var stream = zip.getInputStream(e)){
+                            stream.transferTo(zipOut);
+                        }
+                    }
+                    zipOut.closeEntry();
+                }
+            }
+
+            System.out.printf("commands: %d chars -> %d chars (%.1f%%)%n",
+                    saved.length(), compacted.length(), 100. * compacted.length() / Math.max(1, saved.length()));
+            System.out.printf("file:     %d bytes -> %d bytes%n", in.length(), out.length());
+            System.out.printf("merged %d piece commands, dropped %d narration lines%n",
+                    compactor.mergedChanges, compactor.droppedNarration);
+            System.out.printf("decode time of the piece commands: %.1f ms (%d) -> %.1f ms (%d), compaction %.1f ms%n",
+                    (t1 - t0) / 1e6, decodedBefore, (t3 - t2) / 1e6, decodedAfter, (t2 - t1) / 1e6);
+        }
+    }
+
+    // Flattens an encoded (compound) command into its leaf commands, in execution order.
+    List<String> split(String encoded){
+        var leaves = new ArrayList<String>();
+        split(encoded, leaves);
+        return leaves;
+    }
+
+    private void split(String encoded, List<String> leaves){
+        if(encoded == null || encoded.isEmpty()){
+            return;
+        }
+        if(encoded.startsWith(CompressedCommand.ID)){
+            // Look inside, the wrapped commands are merged like any other. Large steps are compressed again in compact.
+            split(CompressedCommand.expand(encoded.substring(CompressedCommand.ID.length())), leaves);
+            return;
+        }
+        var sd = new SequenceEncoder.Decoder(encoded, GameModule.COMMAND_SEPARATOR);
+        var first = sd.nextToken("");
+        if(first.equals(encoded)){ // same test as GameModule.decode
+            leaves.add(encoded);
+            return;
+        }
+        split(first, leaves);
+        while(sd.hasMoreTokens()){
+            split(sd.nextToken(""), leaves);
+        }
+    }
+
+    String join(List<String> leaves){
+        if(leaves.isEmpty()){
+            return "";
+        }
+        if(leaves.size() == 1){
+            return leaves.get(0);
+        }
+        var se = new SequenceEncoder(GameModule.COMMAND_SEPARATOR);
+        for(var leaf : leaves){
+            se.append(leaf);
+        }
+        return se.getValue();
+    }
+
+    // A log step as Perf.sendAndLog would have sent it: compressed when it is large.
+    static String pack(String encoded){
+        if(encoded.length() < CompressedCommand.THRESHOLD){
+            return encoded;
+        }
+        var packed = CompressedCommand.ID + CompressedCommand.compress(encoded);
+        return packed.length() < encoded.length() ? packed : encoded;
+    }
+
+    public String compact(String saved){
+        var result = new ArrayList<String>();
+        for(var leaf : split(saved)){
+            if(!leaf.startsWith(LOG)){
+                result.add(leaf);
+                continue;
+            }
+            var step = compactStep(split(leaf.substring(LOG.length())));
+            if(!step.isEmpty()){
+                result.add(LOG + pack(join(step)));
+            }
+        }
+        return join(result);
+    }
+
+    // Drops narration if requested and merges piece commands, see the class comment.
+    List<String> compactStep(List<String> commands){
+        var result = new ArrayList<String>();
+        var decoded = new ArrayList<Command>(); // parallel to result, null for commands that are not piece commands
+        for(var command : commands){
+            if(dropNarration && isNarration(command)){
+                droppedNarration++;
+                continue;
+            }
+            var c = decodePieceCommand(command);
+            var target = c == null ? -1 : mergeTarget(result, decoded, c);
+            if(target >= 0){
+                var merged = merge(decoded.get(target), c);
+                mergedChanges++;
+                if(isNoOp(merged)){
+                    result.remove(target);
+                    decoded.remove(target);
+                }else{
+                    result.set(target, encoder.encode(merged));
+                    decoded.set(target, merged);
+                }
+                continue;
+            }
+            result.add(command);
+            decoded.add(c);
+        }
+        return result;
+    }
+
+    // Index of the command right before `c`, narration aside, when `c` can be folded into it, -1 otherwise.
+    private static int mergeTarget(List<String> result, List<Command> decoded, Command c){
+        for(var i = decoded.size() - 1; i >= 0; i--){
+            var d = decoded.get(i);
+            if(d == null && isNarration(result.get(i))){
+                continue;
+            }
+            return d != null && pieceOf(c).equals(pieceOf(d)) && d.getClass() == c.getClass() && merge(d, c) != null ? i : -1;
+        }
+        return -1;
+    }
+
+    // `first` followed by `second` as one command of the same kind, null when they don't combine.
+    static Command merge(Command first, Command second){
+        if(first instanceof ChangePiece && second instanceof ChangePiece){
+            var a = (ChangePiece)first;
+            var b = (ChangePiece)second;
+            return new ChangePiece(a.getId(), a.getOldState(), b.getNewState());
+        }else if(first instanceof MovePiece && second instanceof MovePiece){
+            var a = (MovePiece)first;
+            var b = (MovePiece)second;
+            return new MovePiece(a.getId(), b.getNewMapId(), b.getNewPosition(), b.getNewUnderneathId(),
+                    a.getOldMapId(), a.getOldPosition(), a.getOldUnderneathId(), b.getPlayerId());
+        }else if(first instanceof AppendWaypoints && second instanceof AppendWaypoints){
+            var a = (AppendWaypoints)first;
+            var b = (AppendWaypoints)second;
+            if(a.isRetract() || b.isRetract()){
+                return null; // undo forms stay as they are
+            }
+            var points = a.getPoints().copy();
+            points.addAll(b.getPoints());
+            return new AppendWaypoints(a.getPieceId(), points, false);
+        }else if(first instanceof ConsumeWaypoints && second instanceof ConsumeWaypoints){
+            var a = (ConsumeWaypoints)first;
+            var b = (ConsumeWaypoints)second;
+            if(a.isRestore() || b.isRestore()){
+                return null;
+            }
+            var points = a.getPoints().copy();
+            points.addAll(b.getPoints());
+            return new ConsumeWaypoints(a.getPieceId(), points, false);
+        }else if(first instanceof SetDetectionRange && second instanceof SetDetectionRange){
+            var a = (SetDetectionRange)first;
+            var b = (SetDetectionRange)second;
+            return new SetDetectionRange(a.getPieceId(), a.getOldRange(), b.getNewRange());
+        }
+        return null;
+    }
+
+    private static boolean isNoOp(Command c){
+        if(c instanceof ChangePiece){
+            var change = (ChangePiece)c;
+            return change.getOldState() != null && change.getOldState().equals(change.getNewState());
+        }else if(c instanceof SetDetectionRange){
+            return ((SetDetectionRange)c).getOldRange() == ((SetDetectionRange)c).getNewRange();
+        }
+        return false;
+    }
+
+    static String pieceOf(Command c){
+        if(c instanceof ChangePiece){
+            return ((ChangePiece)c).getId();
+        }else if(c instanceof MovePiece){
+            return ((MovePiece)c).getId();
+        }else if(c instanceof WaypointCommand){
+            return ((WaypointCommand)c).getPieceId();
+        }
+        return null;
+    }
+
+    static boolean isPieceCommand(String command){
+        return command.startsWith(BasicCommandEncoder.CHANGE) || command.startsWith(BasicCommandEncoder.MOVE)
+                || command.startsWith(AppendWaypoints.ID) || command.startsWith(ConsumeWaypoints.ID)
+                || command.startsWith(SetDetectionRange.ID);
+    }
+
+    // The command decoded through the module encoder when it is a piece command, null otherwise. Other builtin
+    // commands may need a running game to decode.
+    private Command decodePieceCommand(String command){
+        if(!isPieceCommand(command)){
+            return null;
+        }
+        var c = encoder.decode(command);
+        return pieceOf(c) == null ? null : c;
+    }
+
+    // Decodes every piece command of an encoded log through the module encoder, returns how many there were.
+    int decodeAll(String saved){
+        var n = 0;
+        for(var leaf : split(saved)){
+            if(leaf.startsWith(LOG)){
+                for(var command : split(leaf.substring(LOG.length()))){
+                    if(decodePieceCommand(command) != null){
+                        n++;
+                    }
+                }
+            }else if(decodePieceCommand(leaf) != null){
+                n++;
+            }
+        }
+        return n;
+    }
+
+    static boolean isNarration(String command){
+        if(!command.startsWith(CHAT)){
+            return false;
+        }
+        var message = command.substring(CHAT.length());
+        for(var prefix : NARRATION){
+            if(message.startsWith(prefix)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,289 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.Map;
+import VASSAL.tools.ErrorDialog;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Moves in three stages so the map never freezes on a large scenario:
+//   1. on the EDT the pieces are snapshotted into Plans (position, route copy, allowance, side, range), together with
+//      every aircraft they could meet (Spot, taken from AircraftIndex),
+//   2. a worker steps the routes, forking over the common pool when there are many, finds the aircraft that came into
+//      range on the way (see PulseScheduler) and who sees whom at the new positions,
+//   3. back on the EDT the caller executes the moves, VisibilityEngine takes the relations worked out in 2 instead of
+//      querying the index again, and the result is logged in one go.
+// A piece stays in flight from 1 to 3 and further moves of it are refused meanwhile. A plan whose piece was moved,
+// removed, re-plotted or changed its side or range while in flight (a command from the other player, for instance) is
+// dropped in stage 3, with everything the worker found about it. Executing the moves stays on the EDT, Vassal's maps
+// and stacks are not thread safe.
+final class MovePipeline {
+    // Plans stepped sequentially below this, forking costs more than it saves for a handful of routes.
+    static final int PARALLEL_THRESHOLD = 64;
+
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        var t = new Thread(r, "yyz-move");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only touched on the EDT.
+    private static final Set<AircraftSheet> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Route snapshot taken on the EDT, the worker only sees these copies.
+    static final class Plan {
+        final AircraftSheet sheet;
+        final Map map;
+        final Point start;
+        final WaypointPath route;
+        final int routeVersion;
+        final double movementAllowance;
+        final String side;
+        final int detectionRange;
+        final Simulation.Step step = new Simulation.Step();
+
+        Plan(AircraftSheet sheet){
+            this.sheet = sheet;
+            this.map = sheet.getMap();
+            this.start = sheet.getPosition();
+            this.route = sheet.waypoints.copy();
+            this.routeVersion = sheet.waypoints.version();
+            this.movementAllowance = sheet.getMovementAllowance();
+            this.side = AircraftIndex.sideOf(sheet);
+            this.detectionRange = sheet.mediumDetectionRange;
+        }
+
+        // True while the piece still stands where and plots what the plan was made from.
+        boolean isCurrent(){
+            return sheet.getMap() != null && start.equals(sheet.getPosition()) && routeVersion == sheet.waypoints.version()
+                    && detectionRange == sheet.mediumDetectionRange && side.equals(AircraftIndex.sideOf(sheet));
+        }
+
+        void step(){
+            Simulation.stepAlong(start.x, start.y, route, movementAllowance, step);
+        }
+    }
+
+    // An aircraft at a fixed position: a bystander standing still while the plans move, snapshotted on the EDT like a
+    // Plan, or a plan where its step ends.
+    private static final class Spot {
+        final AircraftSheet sheet;
+        final Map map;
+        final String side;
+        final int detectionRange;
+        final int x;
+        final int y;
+        final boolean moving;
+
+        Spot(AircraftSheet sheet){
+            this.sheet = sheet;
+            this.map = sheet.getMap();
+            this.side = AircraftIndex.sideOf(sheet);
+            this.detectionRange = sheet.mediumDetectionRange;
+            this.x = sheet.getPosition().x;
+            this.y = sheet.getPosition().y;
+            this.moving = false;
+        }
+
+        Spot(Plan plan){
+            this.sheet = plan.sheet;
+            this.map = plan.map;
+            this.side = plan.side;
+            this.detectionRange = plan.detectionRange;
+            this.x = plan.step.x;
+            this.y = plan.step.y;
+            this.moving = true;
+        }
+    }
+
+    // What the worker found, for every plan: the contacts on the way and the (observer, target) pairs at the end.
+    private static final class Found {
+        final List<PulseScheduler.Contact<AircraftSheet>> contacts = new ArrayList<>();
+        final List<AircraftSheet> observers = new ArrayList<>();
+        final List<AircraftSheet> targets = new ArrayList<>();
+    }
+
+    // What stage 3 gets: the plans still current, and what they see and spotted on the way.
+    static final class Result {
+        final List<Plan> plans;
+        final VisibilityEngine.Moves moves;
+
+        Result(List<Plan> plans, VisibilityEngine.Moves moves){
+            this.plans = plans;
+            this.moves = moves;
+        }
+    }
+
+    // Every enemy a plan could meet: within its allowance plus the longer of its own range and the longest range of
+    // anybody, so both the ones it can see and the ones that can see it. Call on the EDT.
+    private static List<Spot> bystanders(List<Plan> plans){
+        var reach = VisibilityEngine.getInstance().maxRange();
+        var seen = Collections.newSetFromMap(new IdentityHashMap<AircraftSheet, Boolean>());
+        for(var plan : plans){
+            seen.add(plan.sheet);
+        }
+        var result = new ArrayList<Spot>();
+        for(var plan : plans){
+            var range = plan.movementAllowance + Math.max(reach, plan.detectionRange);
+            for(var sheet : AircraftIndex.getInstance().findEnemies(plan.map, plan.side, plan.start, range)){
+                if(seen.add(sheet)){
+                    result.add(new Spot(sheet));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Every new contact while the plans move simultaneously and the bystanders stand still, in the order they happen.
+    // Runs on the worker, after the plans were stepped.
+    private static void contacts(List<Plan> plans, List<Spot> bystanders, Found found){
+        var t0 = Perf.start();
+        var tracks = new HashMap<Map, List<PulseScheduler.Track<AircraftSheet>>>();
+        for(var plan : plans){
+            tracks.computeIfAbsent(plan.map, m -> new ArrayList<>()).add(PulseScheduler.Track.moving(plan.sheet, plan.side,
+                    plan.detectionRange, plan.start.x, plan.start.y, plan.route, plan.step.consumed, plan.step.x, plan.step.y,
+                    plan.movementAllowance));
+        }
+        for(var b : bystanders){
+            tracks.get(b.map).add(PulseScheduler.Track.stationary(b.sheet, b.side, b.detectionRange, b.x, b.y));
+        }
+
+        for(var mapTracks : tracks.values()){
+            found.contacts.addAll(PulseScheduler.contacts(mapTracks));
+        }
+        Perf.stop(Perf.CONTACTS, t0);
+    }
+
+    // Who sees whom once the plans stand where their steps end, every pair with a plan in it: a plan as observer of
+    // the bystanders and the other plans, and as target of the bystanders. Runs on the worker, after the plans were
+    // stepped. Mirrors VisibilityEngine.recompute, which reads the same values from the live pieces.
+    private static void visibility(List<Plan> plans, List<Spot> bystanders, Found found){
+        var t0 = Perf.start();
+        var grids = new HashMap<Map, HashMap<String, SpatialGrid<Spot>>>();
+        var ends = new ArrayList<Spot>(plans.size());
+        var reach = 0;
+        for(var plan : plans){
+            var end = new Spot(plan);
+            ends.add(end);
+            grid(grids, end).put(end, end.x, end.y);
+            reach = Math.max(reach, end.detectionRange);
+        }
+        for(var b : bystanders){
+            grid(grids, b).put(b, b.x, b.y);
+            reach = Math.max(reach, b.detectionRange);
+        }
+
+        for(var end : ends){
+            for(var sideGrid : grids.get(end.map).entrySet()){
+                if(sideGrid.getKey().equals(end.side)){
+                    continue;
+                }
+                if(!end.side.isEmpty()){ // pieces without a side don't detect
+                    sideGrid.getValue().forEachCandidate(end.x, end.y, end.detectionRange, t -> {
+                        if(Simulation.inRange(end.x, end.y, end.detectionRange, t.x, t.y)){
+                            found.observers.add(end.sheet);
+                            found.targets.add(t.sheet);
+                        }
+                    });
+                }
+                sideGrid.getValue().forEachCandidate(end.x, end.y, reach, o -> {
+                    // plans as observers are covered above
+                    if(!o.moving && !o.side.isEmpty() && Simulation.inRange(o.x, o.y, o.detectionRange, end.x, end.y)){
+                        found.observers.add(o.sheet);
+                        found.targets.add(end.sheet);
+                    }
+                });
+            }
+        }
+        Perf.stop(Perf.VISIBILITY_DIFF, t0);
+    }
+
+    private static SpatialGrid<Spot> grid(HashMap<Map, HashMap<String, SpatialGrid<Spot>>> grids, Spot spot){
+        return grids.computeIfAbsent(spot.map, m -> new HashMap<>())
+                .computeIfAbsent(spot.side, s -> new SpatialGrid<>(AircraftIndex.CELL_SIZE));
+    }
+
+    // The relations of the current plans for VisibilityEngine, leaving out everything the worker found about the dropped
+    // ones as those aircraft did not move. Spotted targets are listed once, in the order of their first contact.
+    private static VisibilityEngine.Moves moves(List<Plan> current, Found found, Set<AircraftSheet> dropped){
+        var moves = new VisibilityEngine.Moves();
+        for(var plan : current){
+            moves.moved.add(plan.sheet);
+        }
+        for(var i = 0; i < found.observers.size(); i++){
+            var observer = found.observers.get(i);
+            var target = found.targets.get(i);
+            if(!dropped.contains(observer) && !dropped.contains(target)){
+                moves.observers.add(observer);
+                moves.targets.add(target);
+            }
+        }
+        var seen = Collections.newSetFromMap(new IdentityHashMap<AircraftSheet, Boolean>());
+        for(var contact : found.contacts){
+            if(!dropped.contains(contact.observer.unit) && !dropped.contains(contact.target.unit) && seen.add(contact.target.unit)){
+                moves.spotted.add(contact.target.unit);
+            }
+        }
+        return moves;
+    }
+
+    static boolean isInFlight(AircraftSheet sheet){
+        return inFlight.contains(sheet);
+    }
+
+    // Steps the plans and works out their visibility on the worker, then calls `apply` on the EDT with the plans that
+    // are still current and their relations.
+    // Call on the EDT, with plans of pieces that are not in flight.
+    static void submit(List<Plan> plans, Consumer<Result> apply){
+        var bystanders = bystanders(plans);
+        for(var plan : plans){
+            inFlight.add(plan.sheet);
+        }
+        CompletableFuture.supplyAsync(() -> {
+            var t0 = Perf.start();
+            if(plans.size() < PARALLEL_THRESHOLD){
+                plans.forEach(Plan::step);
+            }else{
+                plans.parallelStream().forEach(Plan::step);
+            }
+            Perf.stop(Perf.MOVE_STEP, t0);
+            var found = new Found();
+            contacts(plans, bystanders, found);
+            visibility(plans, bystanders, found);
+            return found;
+        }, worker).whenCompleteAsync((found, error) -> {
+            for(var plan : plans){
+                inFlight.remove(plan.sheet);
+            }
+            if(error != null){
+                ErrorDialog.bug(error);
+                return;
+            }
+            var current = new ArrayList<Plan>(plans.size());
+            var dropped = Collections.newSetFromMap(new IdentityHashMap<AircraftSheet, Boolean>());
+            for(var plan : plans){
+                if(plan.isCurrent()){
+                    current.add(plan);
+                }else{
+                    dropped.add(plan.sheet);
+                }
+            }
+            if(current.size() < plans.size()){
+                GameModule.getGameModule().getChatter().show(String.format("- %d move%s dropped, the aircraft changed while moving",
+                        plans.size() - current.size(), plans.size() - current.size() == 1 ? "" : "s"));
+            }
+            apply.accept(new Result(current, moves(current, found, dropped)));
+        }, SwingUtilities::invokeLater);
+    }
+}
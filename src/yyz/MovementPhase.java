@@ -0,0 +1,90 @@
+package yyz;
+
+import VASSAL.build.AbstractBuildable;
+import VASSAL.build.Buildable;
+import VASSAL.build.GameModule;
+import VASSAL.build.module.Chatter;
+import VASSAL.command.Command;
+import VASSAL.command.NullCommand;
+import VASSAL.counters.Decorator;
+
+import javax.swing.*;
+import java.util.ArrayList;
+
+// Toolbar button advancing every AircraftSheet piece along its waypoints in one go.
+// Register it in buildFile.xml with <yyz.MovementPhase/>, next to <yyz.YyzCommandEncoder/>.
+public class MovementPhase extends AbstractBuildable {
+
+    @Override
+    public String[] getAttributeNames(){
+        return new String[0];
+    }
+
+    @Override
+    public void setAttribute(String key, Object value){
+    }
+
+    @Override
+    public String getAttributeValueString(String key){
+        return null;
+    }
+
+    @Override
+    public void addTo(Buildable parent){
+        var button = new JButton("Advance All");
+        button.setToolTipText("Move every aircraft a step along its plotted waypoints");
+        button.addActionListener(e -> advanceAll());
+        GameModule.getGameModule().getToolBar().add(button);
+    }
+
+    public void advanceAll(){
+        var mod = GameModule.getGameModule();
+
+        var plans = new ArrayList<MovePipeline.Plan>();
+        for(var p : mod.getGameState().getAllPieces()){
+            var sheet = (AircraftSheet)Decorator.getDecorator(p, AircraftSheet.class);
+            if(sheet != null && sheet.getMap() != null && !sheet.waypoints.isEmpty() && !MovePipeline.isInFlight(sheet)){
+                plans.add(new MovePipeline.Plan(sheet));
+            }
+        }
+        if(plans.isEmpty()){
+            return;
+        }
+
+        // Path stepping is pure, so it runs on the MovePipeline worker and the map stays responsive.
+        MovePipeline.submit(plans, this::apply);
+    }
+
+    // Applying the moves touches the maps and pieces, so it runs on the EDT.
+    private void apply(MovePipeline.Result result){
+        var plans = result.plans;
+        if(plans.isEmpty()){
+            return;
+        }
+        var t0 = Perf.start();
+        var mod = GameModule.getGameModule();
+        Command c = new NullCommand();
+        for(var plan : plans){
+            if(plan.step.consumed > 0){
+                var consume = new ConsumeWaypoints(Decorator.getOutermost(plan.sheet).getId(), plan.route.copyRange(0, plan.step.consumed), false);
+                consume.execute();
+                c = c.append(consume);
+            }
+            c = c.append(plan.sheet.movePiece(plan.sheet, plan.step.position()));
+        }
+
+        // A single visibility update once everybody stands at the new position.
+        var passed = new ArrayList<String>();
+        var revealed = new ArrayList<String>();
+        var lost = new ArrayList<String>();
+        c = c.append(VisibilityEngine.getInstance().refresh(result.moves, passed, revealed, lost));
+
+        var message = String.format("Advance All - %d aircraft moved", plans.size()) + VisibilityEngine.describe(passed, revealed, lost);
+        var summary = new Chatter.DisplayText(mod.getChatter(), message);
+        summary.execute();
+        summary.append(c);
+
+        Perf.sendAndLog(summary);
+        Perf.stop(Perf.MOVE_APPLY, t0);
+    }
+}
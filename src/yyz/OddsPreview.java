@@ -0,0 +1,235 @@
+package yyz;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+// Monte Carlo odds of a fire or move resolution, shown before the player commits it.
+// The game state is snapshotted on the EDT by the caller. A background thread runs rounds of trials forked over
+// the common pool and after every round hands a copy of the histogram to the EDT, so the dialog fills in as the
+// numbers converge and the UI never waits for the trials. Closing the dialog stops the run.
+// Trials draw from their own SplittableRandom, never from the module RNG, so previewing does not change the game.
+final class OddsPreview {
+    static final int TRIALS = 200_000;
+    static final int CHUNK = 2_000; // trials per forked task
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        var t = new Thread(r, "yyz-odds-preview");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // One random experiment, returning the index of its outcome bucket. Must only read the snapshot it was built on.
+    interface Trial {
+        int run(SplittableRandom random);
+    }
+
+    private final String title;
+    private final Trial trial;
+    private final int buckets;
+    private final Function<long[], String> format; // histogram -> HTML shown in the dialog
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private JDialog dialog;
+    private JLabel text;
+    private JProgressBar progress;
+
+    OddsPreview(String title, int buckets, Trial trial, Function<long[], String> format){
+        this.title = title;
+        this.buckets = buckets;
+        this.trial = trial;
+        this.format = format;
+    }
+
+    // Opens the dialog and starts the trials. Call on the EDT.
+    void start(Window owner){
+        dialog = new JDialog(owner, title, Dialog.ModalityType.MODELESS);
+        text = new JLabel("<html>Running trials...</html>");
+        text.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        progress = new JProgressBar(0, TRIALS);
+        progress.setStringPainted(true);
+        dialog.add(text, BorderLayout.CENTER);
+        dialog.add(progress, BorderLayout.SOUTH);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter(){
+            @Override
+            public void windowClosed(WindowEvent e){
+                cancelled.set(true);
+            }
+        });
+        dialog.setSize(360, 160 + 18 * Math.min(buckets, 12));
+        dialog.setLocationRelativeTo(owner);
+        dialog.setVisible(true);
+
+        executor.execute(this::run);
+    }
+
+    private void run(){
+        var seed = new SplittableRandom().nextLong();
+        var total = new long[buckets];
+        var done = 0;
+        var chunksPerRound = Math.max(1, Runtime.getRuntime().availableProcessors() * 2);
+
+        while(done < TRIALS && !cancelled.get()){
+            var first = done / CHUNK;
+            var chunks = Math.min(chunksPerRound, (TRIALS - done + CHUNK - 1) / CHUNK);
+            var round = IntStream.range(first, first + chunks).parallel()
+                    .mapToObj(chunk -> runChunk(new SplittableRandom(seed + chunk * 0x9E3779B97F4A7C15L)))
+                    .reduce(new long[buckets], OddsPreview::merge);
+            total = merge(total, round);
+            done = Math.min(TRIALS, done + chunks * CHUNK);
+
+            var snapshot = total.clone();
+            var trials = done;
+            SwingUtilities.invokeLater(() -> show(snapshot, trials));
+        }
+    }
+
+    private long[] runChunk(SplittableRandom random){
+        var histogram = new long[buckets];
+        for(var i = 0; i < CHUNK; i++){
+            histogram[trial.run(random)]++;
+        }
+        return histogram;
+    }
+
+    // Returns a new array: the reduction identity is shared between the forked tasks and must stay untouched.
+    private static long[] merge(long[] a, long[] b){
+        var sum = a.clone();
+        for(var i = 0; i < sum.length; i++){
+            sum[i] += b[i];
+        }
+        return sum;
+    }
+
+    private void show(long[] histogram, int trials){
+        if(cancelled.get()){
+            return;
+        }
+        text.setText(format.apply(histogram));
+        progress.setValue(trials);
+        progress.setString(String.format("%,d trials", trials));
+    }
+
+    static String percent(long count, long trials){
+        return String.format("%.1f%%", 100. * count / Math.max(1, trials));
+    }
+
+    // Odds of a salvo of `shooters` at `targets` under the Salvo rule. Bucket = number of targets destroyed.
+    static OddsPreview fire(int shooters, int targets){
+        var maxHits = Math.min(shooters, targets);
+        Trial trial = random -> {
+            var hits = new int[1];
+            Salvo.fireShots(shooters, targets, random::nextDouble, t -> hits[0]++);
+            return hits[0];
+        };
+        return new OddsPreview("Fire odds", maxHits + 1, trial, h -> {
+            long trials = 0, sum = 0;
+            for(var k = 0; k < h.length; k++){
+                trials += h[k];
+                sum += k * h[k];
+            }
+            var sb = new StringBuilder("<html>").append(shooters).append(shooters == 1 ? " shooter" : " shooters")
+                    .append(" at ").append(targets).append(targets == 1 ? " target" : " targets").append("<br>")
+                    .append(String.format("Expected hits: <b>%.2f</b><br>", (double)sum / Math.max(1, trials)));
+            for(var k = 0; k < h.length; k++){
+                sb.append(k).append(k == 1 ? " target" : " targets").append(" destroyed: ").append(percent(h[k], trials)).append("<br>");
+            }
+            return sb.append("</html>").toString();
+        });
+    }
+
+    // An enemy as seen on the map at preview time. Without a plotted route it is assumed to fly its full allowance
+    // in a random direction every turn, that is the uncertainty the trials sample.
+    static final class Enemy {
+        final int x;
+        final int y;
+        final WaypointPath route;
+        final double movementAllowance;
+        final int detectionRange;
+
+        Enemy(int x, int y, WaypointPath route, double movementAllowance, int detectionRange){
+            this.x = x;
+            this.y = y;
+            this.route = route;
+            this.movementAllowance = movementAllowance;
+            this.detectionRange = detectionRange;
+        }
+    }
+
+    // Odds of being detected before the last waypoint is reached, moving one step per turn like "Move a step".
+    // Bucket 0 = never detected, bucket k = first detected after turn k.
+    static OddsPreview move(int startX, int startY, WaypointPath route, double movementAllowance, List<Enemy> enemies){
+        // Our own path is deterministic: work out the position after every turn once.
+        var turns = new ArrayList<Point>();
+        var remaining = route.copy();
+        var step = new Simulation.Step();
+        var x = startX;
+        var y = startY;
+        while(!remaining.isEmpty() && movementAllowance > 0 && turns.size() < 1000){
+            Simulation.stepAlong(x, y, remaining, movementAllowance, step);
+            remaining.consume(step.consumed);
+            x = step.x;
+            y = step.y;
+            turns.add(step.position());
+        }
+        var n = turns.size();
+
+        Trial trial = random -> {
+            var ex = new int[enemies.size()];
+            var ey = new int[enemies.size()];
+            var progress = new WaypointPath[enemies.size()];
+            for(var i = 0; i < ex.length; i++){
+                var e = enemies.get(i);
+                ex[i] = e.x;
+                ey[i] = e.y;
+                progress[i] = e.route.isEmpty() ? null : e.route.copy();
+            }
+            var enemyStep = new Simulation.Step();
+            for(var turn = 0; turn < n; turn++){
+                var me = turns.get(turn);
+                for(var i = 0; i < ex.length; i++){
+                    var e = enemies.get(i);
+                    if(progress[i] != null){
+                        Simulation.stepAlong(ex[i], ey[i], progress[i], e.movementAllowance, enemyStep);
+                        progress[i].consume(enemyStep.consumed);
+                        ex[i] = enemyStep.x;
+                        ey[i] = enemyStep.y;
+                    }else{
+                        var heading = random.nextDouble() * 2 * Math.PI;
+                        ex[i] += (int)Math.round(Math.cos(heading) * e.movementAllowance);
+                        ey[i] += (int)Math.round(Math.sin(heading) * e.movementAllowance);
+                    }
+                    if(Simulation.inRange(ex[i], ey[i], e.detectionRange, me.x, me.y)){
+                        return turn + 1;
+                    }
+                }
+            }
+            return 0;
+        };
+        return new OddsPreview("Move odds", n + 1, trial, h -> {
+            long trials = 0;
+            for(var c : h){
+                trials += c;
+            }
+            var sb = new StringBuilder("<html>").append(n).append(n == 1 ? " turn" : " turns").append(" to the last waypoint, ")
+                    .append(enemies.size()).append(enemies.size() == 1 ? " enemy" : " enemies").append("<br>")
+                    .append("Detected on the way: <b>").append(percent(trials - h[0], trials)).append("</b><br>");
+            long cumulative = 0;
+            for(var k = 1; k < h.length && k <= 12; k++){
+                cumulative += h[k];
+                sb.append("by turn ").append(k).append(": ").append(percent(cumulative, trials)).append("<br>");
+            }
+            return sb.append("</html>").toString();
+        });
+    }
+}
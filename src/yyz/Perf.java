@@ -0,0 +1,236 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.command.Command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Always-on timers and counters of the custom code, for diagnosing slow sessions without a profiler.
+// Type /perf in the chat for totals and percentiles, /perf reset to start over. Every timed section and every sent
+// command is also a JFR event (category "YYZ"), so a recording started with -XX:StartFlightRecording or from JMC shows
+// them on the same timeline as GC and the EDT. The events live in PerfEvents, which is left alone on a runtime without
+// the jdk.jfr module.
+public final class Perf {
+    private Perf(){
+    }
+
+    // PerfEvents links jdk.jfr, so it is only touched when the module is there.
+    static final boolean JFR = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    // Latency histogram with 8 sub-buckets per power of two, about 10% resolution from 1 ns to hours.
+    public static final class Timer {
+        private static final int SUB_BITS = 3;
+        private static final int BUCKETS = 64 << SUB_BITS;
+
+        final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Timer(String name){
+            this.name = name;
+        }
+
+        static int bucket(long nanos){
+            if(nanos < (1 << SUB_BITS)){
+                return (int)Math.max(nanos, 0);
+            }
+            var log = 63 - Long.numberOfLeadingZeros(nanos);
+            var sub = (int)(nanos >>> (log - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+            return ((log - SUB_BITS + 1) << SUB_BITS) + sub;
+        }
+
+        // Upper bound of the values falling into `bucket`.
+        static long bucketLimit(int bucket){
+            if(bucket < (1 << SUB_BITS)){
+                return bucket;
+            }
+            var log = (bucket >> SUB_BITS) + SUB_BITS - 1;
+            var sub = bucket & ((1 << SUB_BITS) - 1);
+            return ((long)((1 << SUB_BITS) + sub + 1) << (log - SUB_BITS)) - 1;
+        }
+
+        public void record(long nanos){
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+            histogram.incrementAndGet(bucket(nanos));
+
+            if(JFR){
+                PerfEvents.section(name, nanos);
+            }
+        }
+
+        public long count(){
+            return count.sum();
+        }
+
+        public long totalNanos(){
+            return total.sum();
+        }
+
+        public long maxNanos(){
+            return max.get();
+        }
+
+        // Approximate percentile (0..100) in nanoseconds, 0 when nothing was recorded.
+        public long percentile(double p){
+            var n = count();
+            if(n == 0){
+                return 0;
+            }
+            var rank = (long)Math.ceil(p / 100. * n);
+            long seen = 0;
+            for(var i = 0; i < BUCKETS; i++){
+                seen += histogram.get(i);
+                if(seen >= rank){
+                    return Math.min(bucketLimit(i), maxNanos());
+                }
+            }
+            return maxNanos();
+        }
+
+        void reset(){
+            count.reset();
+            total.reset();
+            max.set(0);
+            for(var i = 0; i < BUCKETS; i++){
+                histogram.set(i, 0);
+            }
+        }
+    }
+
+    private static final List<Timer> timers = new ArrayList<>();
+
+    private static synchronized Timer timer(String name){
+        var timer = new Timer(name);
+        timers.add(timer);
+        return timer;
+    }
+
+    public static final Timer DRAW = timer("draw");
+    public static final Timer DRAW_WAYPOINTS = timer("drawWaypoints");
+    public static final Timer MOVE_STEP = timer("move step (worker)");
+    public static final Timer MOVE_APPLY = timer("move apply");
+    public static final Timer CONTACTS = timer("move contacts (worker)");
+    public static final Timer VISIBILITY_DIFF = timer("move visibility (worker)");
+    public static final Timer VISIBILITY = timer("visibility");
+    public static final Timer SET_STATE = timer("mySetState");
+    public static final Timer GET_STATE = timer("myGetState");
+    public static final Timer DECODE = timer("decode");
+
+    private static final LongAdder sentCommands = new LongAdder();
+    private static final LongAdder sentLeaves = new LongAdder();
+    private static final LongAdder sentChars = new LongAdder();
+    private static final LongAdder rawChars = new LongAdder(); // encoded length before compression
+    private static final LongAdder compressedCommands = new LongAdder();
+
+    public static long start(){
+        return System.nanoTime();
+    }
+
+    public static void stop(Timer timer, long start){
+        timer.record(System.nanoTime() - start);
+    }
+
+    // GameModule.sendAndLog for every command of the module: counts it and sends commands whose encoded form is large
+    // as a CompressedCommand. Deciding that needs the encoded form anyway, so the sizes cost nothing extra, and the
+    // encoded form goes down with the command (EncodedCommand) so Vassal does not encode it again.
+    public static void sendAndLog(Command c){
+        var mod = GameModule.getGameModule();
+        if(c != null && !c.isNull()){
+            var encoded = mod.encode(c);
+            var wrapped = CompressedCommand.wrap(c, encoded);
+            var chars = encoded.length();
+            if(wrapped != c){
+                compressedCommands.increment();
+                chars = CompressedCommand.ID.length() + ((CompressedCommand)wrapped).getPayload().length();
+            }else{
+                wrapped = new EncodedCommand(c, encoded);
+            }
+
+            var leaves = countLeaves(c);
+            sentCommands.increment();
+            sentLeaves.add(leaves);
+            rawChars.add(encoded.length());
+            sentChars.add(chars);
+
+            if(JFR){
+                PerfEvents.commandSent(leaves, chars);
+            }
+            c = wrapped;
+        }
+        mod.sendAndLog(c);
+    }
+
+    private static int countLeaves(Command c){
+        if(c instanceof CompressedCommand){
+            return countLeaves(((CompressedCommand)c).getInner());
+        }
+        var n = c.isNull() ? 0 : 1;
+        for(var sub : c.getSubCommands()){
+            n += countLeaves(sub);
+        }
+        return n;
+    }
+
+    public static synchronized void reset(){
+        timers.forEach(Timer::reset);
+        sentCommands.reset();
+        sentLeaves.reset();
+        sentChars.reset();
+        rawChars.reset();
+        compressedCommands.reset();
+    }
+
+    // One line per timer that has recorded something, then the command totals.
+    public static synchronized List<String> report(){
+        var lines = new ArrayList<String>();
+        for(var t : timers){
+            var n = t.count();
+            if(n == 0){
+                continue;
+            }
+            lines.add(String.format("%s: %,d calls, total %s, p50 %s, p90 %s, p99 %s, max %s",
+                    t.name, n, time(t.totalNanos()), time(t.percentile(50)), time(t.percentile(90)),
+                    time(t.percentile(99)), time(t.maxNanos())));
+        }
+        var sent = sentCommands.sum();
+        lines.add(String.format("sendAndLog: %,d commands, %,d leaf commands, %,d chars (avg %,d), %,d compressed, %,d chars before compression",
+                sent, sentLeaves.sum(), sentChars.sum(), sentChars.sum() / Math.max(1, sent), compressedCommands.sum(), rawChars.sum()));
+        return lines;
+    }
+
+    static String time(long nanos){
+        if(nanos < 10_000){
+            return nanos + " ns";
+        }else if(nanos < 10_000_000){
+            return String.format("%.1f us", nanos / 1e3);
+        }else if(nanos < 10_000_000_000L){
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+        return String.format("%.1f s", nanos / 1e9);
+    }
+
+    // Handler of the /perf console command: "" or "reset".
+    public static boolean console(String args){
+        var chatter = GameModule.getGameModule().getChatter();
+        switch(args.toLowerCase()){
+            case "":
+                report().forEach(l -> chatter.show("- " + l));
+                return true;
+            case "reset":
+                reset();
+                chatter.show("- perf counters reset");
+                return true;
+            default:
+                chatter.show("- Usage: /perf, /perf reset");
+                return true;
+        }
+    }
+}
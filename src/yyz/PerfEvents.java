@@ -0,0 +1,62 @@
+package yyz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// The JFR events of Perf. Only loaded when the runtime has the jdk.jfr module (see Perf.JFR), a jlink'ed or stripped
+// JRE without it still gets the timers and counters.
+final class PerfEvents {
+    private PerfEvents(){
+    }
+
+    @Name("yyz.Section")
+    @Label("YYZ Section")
+    @Category("YYZ")
+    static class SectionEvent extends Event {
+        @Label("Section")
+        String section;
+
+        // Measured by the Timer, the event itself is committed at the end of the section. Not "duration", JFR has that
+        // field already.
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+    }
+
+    @Name("yyz.CommandSent")
+    @Label("YYZ Command Sent")
+    @Category("YYZ")
+    static class CommandSentEvent extends Event {
+        @Label("Commands")
+        int commands;
+
+        @Label("Encoded Length")
+        @Description("Characters on the wire, after compression")
+        long chars;
+    }
+
+    // Events are allocated unconditionally: shouldCommit() is false while nothing records and the JIT then drops the
+    // allocation. Looking up the EventType up front fails for classes JFR has not instrumented yet, which is every class
+    // loaded before a recording starts.
+    static void section(String name, long nanos){
+        var event = new SectionEvent();
+        if(event.shouldCommit()){
+            event.section = name;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    static void commandSent(int commands, long chars){
+        var event = new CommandSentEvent();
+        if(event.shouldCommit()){
+            event.commands = commands;
+            event.chars = chars;
+            event.commit();
+        }
+    }
+}
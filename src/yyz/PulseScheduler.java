@@ -0,0 +1,253 @@
+package yyz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Simultaneous movement over one phase, Harpoon style: every unit flies its path at constant speed, covering its full
+// movement allowance at time 1, and stops where the path ends. Detections are found analytically instead of by
+// stepping: between two breakpoints (a unit turning or stopping) the offset of a target from an observer moves on a
+// straight line, so the moment it enters the detection circle is the smaller root of a quadratic. Every candidate pair
+// has one pending event in a priority queue, either its contact or the next breakpoint of either unit, and events are
+// processed in time order. The work grows with the number of turns and contacts, not with a time resolution.
+// Like Simulation it knows nothing about Vassal, MovePipeline feeds it the plans of a move.
+final class PulseScheduler {
+    private PulseScheduler(){
+    }
+
+    // Path of a unit during the phase: point i is reached at times[i], the unit stands still after the last one.
+    static final class Track<T> {
+        final T unit;
+        final String side;
+        final double detectionRange;
+        final double[] xs;
+        final double[] ys;
+        final double[] times;
+
+        private Track(T unit, String side, double detectionRange, double[] xs, double[] ys, double[] times){
+            this.unit = unit;
+            this.side = side;
+            this.detectionRange = detectionRange;
+            this.xs = xs;
+            this.ys = ys;
+            this.times = times;
+        }
+
+        static <T> Track<T> stationary(T unit, String side, double detectionRange, int x, int y){
+            return new Track<>(unit, side, detectionRange, new double[]{x}, new double[]{y}, new double[]{0});
+        }
+
+        // A unit stepped by Simulation.stepAlong: from the start through the `consumed` passed waypoints to the end.
+        static <T> Track<T> moving(T unit, String side, double detectionRange, int startX, int startY, WaypointPath route,
+                                   int consumed, int endX, int endY, double movementAllowance){
+            if(movementAllowance <= 0){
+                return stationary(unit, side, detectionRange, startX, startY);
+            }
+            var xs = new double[consumed + 2];
+            var ys = new double[xs.length];
+            var times = new double[xs.length];
+            xs[0] = startX;
+            ys[0] = startY;
+            var n = 1;
+            var distance = 0.;
+            for(var i = 0; i <= consumed; i++){
+                double x = i < consumed ? route.x(i) : endX;
+                double y = i < consumed ? route.y(i) : endY;
+                var leg = Math.hypot(x - xs[n - 1], y - ys[n - 1]);
+                if(leg == 0){
+                    continue; // zero length legs would give two breakpoints at the same time
+                }
+                distance += leg;
+                xs[n] = x;
+                ys[n] = y;
+                times[n] = Math.min(1, distance / movementAllowance);
+                n++;
+            }
+            return new Track<>(unit, side, detectionRange,
+                    Arrays.copyOf(xs, n), Arrays.copyOf(ys, n), Arrays.copyOf(times, n));
+        }
+
+        double length(){
+            var length = 0.;
+            for(var i = 1; i < xs.length; i++){
+                length += Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+            }
+            return length;
+        }
+
+        // Position at time t, written to out[0], out[1].
+        void positionAt(double t, double[] out){
+            var last = times.length - 1;
+            if(t <= 0 || last == 0){
+                out[0] = xs[0];
+                out[1] = ys[0];
+                return;
+            }
+            if(t >= times[last]){
+                out[0] = xs[last];
+                out[1] = ys[last];
+                return;
+            }
+            var i = segment(t);
+            var p = (t - times[i]) / (times[i + 1] - times[i]);
+            out[0] = xs[i] + (xs[i + 1] - xs[i]) * p;
+            out[1] = ys[i] + (ys[i + 1] - ys[i]) * p;
+        }
+
+        // First breakpoint strictly after t, infinity when the unit has stopped.
+        double nextBreak(double t){
+            var last = times.length - 1;
+            if(t >= times[last]){
+                return Double.POSITIVE_INFINITY;
+            }
+            return times[segment(t) + 1];
+        }
+
+        // Index i of the leg with times[i] <= t < times[i + 1], for times[0] <= t < times[last].
+        private int segment(double t){
+            int lo = 0, hi = times.length - 1;
+            while(hi - lo > 1){
+                var mid = (lo + hi) >>> 1;
+                if(times[mid] <= t){
+                    lo = mid;
+                }else{
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    // `observer` first has `target` within its detection range at `time` (0..1) of the phase.
+    static final class Contact<T> {
+        final double time;
+        final Track<T> observer;
+        final Track<T> target;
+
+        Contact(double time, Track<T> observer, Track<T> target){
+            this.time = time;
+            this.observer = observer;
+            this.target = target;
+        }
+    }
+
+    // Pending event of a pair: its contact, or the start of the next interval in which both move in a straight line.
+    private static final class Event<T> implements Comparable<Event<T>> {
+        final double time;
+        final boolean contact;
+        final Track<T> observer;
+        final Track<T> target;
+
+        Event(double time, boolean contact, Track<T> observer, Track<T> target){
+            this.time = time;
+            this.contact = contact;
+            this.observer = observer;
+            this.target = target;
+        }
+
+        @Override
+        public int compareTo(Event<T> o){
+            return Double.compare(time, o.time);
+        }
+    }
+
+    // New contacts during the phase, in time order: pairs out of range at time 0 whose target comes within the
+    // observer's range before time 1. Each (observer, target) pair is reported at most once. Units without a side
+    // don't detect, like everywhere else in the module.
+    static <T> List<Contact<T>> contacts(List<Track<T>> tracks){
+        return contacts(tracks, Simulation.DEFAULT_CELL_SIZE);
+    }
+
+    static <T> List<Contact<T>> contacts(List<Track<T>> tracks, int cellSize){
+        // Broad phase: a pair can only meet if their start points are within the range plus both path lengths.
+        var grids = new HashMap<String, SpatialGrid<Track<T>>>();
+        var maxLength = 0.;
+        for(var track : tracks){
+            grids.computeIfAbsent(track.side, s -> new SpatialGrid<>(cellSize)).put(track, (int)track.xs[0], (int)track.ys[0]);
+            maxLength = Math.max(maxLength, track.length());
+        }
+
+        var queue = new PriorityQueue<Event<T>>();
+        var a = new double[2];
+        var b = new double[2];
+        for(var observer : tracks){
+            if(observer.side.isEmpty() || observer.detectionRange <= 0){
+                continue;
+            }
+            var reach = observer.detectionRange + observer.length() + maxLength + 1; // +1 for the int cell position
+            for(var entry : grids.entrySet()){
+                if(entry.getKey().equals(observer.side)){
+                    continue;
+                }
+                entry.getValue().forEachCandidate(observer.xs[0], observer.ys[0], reach, target -> {
+                    observer.positionAt(0, a);
+                    target.positionAt(0, b);
+                    if(!within(b[0] - a[0], b[1] - a[1], observer.detectionRange)){ // already in contact is not new
+                        schedule(queue, observer, target, 0);
+                    }
+                });
+            }
+        }
+
+        var result = new ArrayList<Contact<T>>();
+        while(!queue.isEmpty()){
+            var event = queue.poll();
+            if(event.contact){
+                result.add(new Contact<>(event.time, event.observer, event.target));
+            }else{
+                schedule(queue, event.observer, event.target, event.time);
+            }
+        }
+        return result;
+    }
+
+    // Queues the contact of the pair within the straight interval starting at `from`, or the start of the next one.
+    private static <T> void schedule(PriorityQueue<Event<T>> queue, Track<T> observer, Track<T> target, double from){
+        var to = Math.min(1, Math.min(observer.nextBreak(from), target.nextBreak(from)));
+        if(to <= from){
+            return; // both stopped: the offset no longer changes
+        }
+        var p = new double[2];
+        var q = new double[2];
+        observer.positionAt(from, p);
+        target.positionAt(from, q);
+        var dx = q[0] - p[0];
+        var dy = q[1] - p[1];
+        observer.positionAt(to, p);
+        target.positionAt(to, q);
+        var vx = q[0] - p[0] - dx; // change of the offset over the whole interval
+        var vy = q[1] - p[1] - dy;
+
+        var u = entry(dx, dy, vx, vy, observer.detectionRange);
+        if(u >= 0){
+            queue.add(new Event<>(from + u * (to - from), true, observer, target));
+        }else if(to < 1){
+            queue.add(new Event<>(to, false, observer, target));
+        }
+    }
+
+    // Smallest u in [0, 1] with |d + u v| <= r, -1 if there is none.
+    static double entry(double dx, double dy, double vx, double vy, double r){
+        var c = dx * dx + dy * dy - r * r;
+        if(c <= 0){
+            return 0;
+        }
+        var a = vx * vx + vy * vy;
+        var halfB = dx * vx + dy * vy;
+        if(a == 0 || halfB >= 0){
+            return -1; // not moving closer
+        }
+        var disc = halfB * halfB - a * c;
+        if(disc < 0){
+            return -1; // passes outside the circle
+        }
+        var u = (-halfB - Math.sqrt(disc)) / a;
+        return u <= 1 ? u : -1;
+    }
+
+    private static boolean within(double dx, double dy, double r){
+        return dx * dx + dy * dy <= r * r;
+    }
+}
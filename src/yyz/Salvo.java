@@ -0,0 +1,185 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.Chatter;
+import VASSAL.build.module.GameComponent;
+import VASSAL.build.module.Map;
+import VASSAL.command.Command;
+import VASSAL.command.RemovePiece;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.KeyBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntConsumer;
+
+// Fire of one or more AircraftSheet shooters at one or more targets, resolved into a single command:
+// one result line plus a RemovePiece per destroyed target, whatever the number of shots.
+//
+// Pressing Fire with several aircraft selected starts a salvo. Every click adds (or drops again) a target and
+// Conclude resolves it. With a single shooter the first click fires, as before.
+// The first shooter leads: its mouse listener picks the targets. A salvo whose leader was removed or deselected, so
+// that neither a click nor Conclude can reach it any more, is cancelled the next time anybody asks for it, and closing
+// the game cancels it as well.
+final class Salvo {
+    static final double HIT_CHANCE = 0.5;
+
+    // Salvo waiting for its targets. Vassal hands the Fire key to every selected piece in turn,
+    // the first one starts the salvo and the others find themselves already in it.
+    private static Salvo active;
+
+    // Registered with the GameState by YyzCommandEncoder, so a salvo pending when the game closes does not outlive it.
+    static final GameComponent COMPONENT = new GameComponent(){
+        @Override
+        public void setup(boolean gameStarting){
+            if(!gameStarting){
+                cancel();
+            }
+        }
+
+        @Override
+        public Command getRestoreCommand(){
+            return null;
+        }
+    };
+
+    final Map map;
+    final AircraftSheet leader;
+    final List<AircraftSheet> shooters = new ArrayList<>();
+    final List<GamePiece> targets = new ArrayList<>();
+
+    private Salvo(AircraftSheet leader){
+        this.map = leader.getMap();
+        this.leader = leader;
+    }
+
+    // The pending salvo, null when there is none or when it was just cancelled because its leader is gone.
+    static Salvo active(){
+        if(active != null && !active.isLeaderReachable()){
+            cancel();
+        }
+        return active;
+    }
+
+    private boolean isLeaderReachable(){
+        var outermost = Decorator.getOutermost(leader);
+        return leader.getMap() == map && GameModule.getGameModule().getGameState().getPieceForId(outermost.getId()) != null
+                && KeyBuffer.getBuffer().contains(outermost);
+    }
+
+    // Drops the pending salvo without firing and gives the map its default mouse handling back.
+    static void cancel(){
+        var salvo = active;
+        active = null;
+        if(salvo != null && salvo.leader.mouseMode == AircraftSheet.MouseMode.FIRING){
+            salvo.leader.mouseMode = null;
+            salvo.map.popMouseListener(salvo.leader);
+        }
+    }
+
+    // Starts a salvo of every selected AircraftSheet on the map of `first`, which always takes part.
+    static Salvo begin(AircraftSheet first){
+        var salvo = new Salvo(first);
+        salvo.shooters.add(first);
+        for(var p : KeyBuffer.getBuffer().asList()){
+            var sheet = (AircraftSheet)Decorator.getDecorator(p, AircraftSheet.class);
+            if(sheet != null && sheet != first && sheet.getMap() == salvo.map){
+                salvo.shooters.add(sheet);
+            }
+        }
+        active = salvo;
+        return salvo;
+    }
+
+    static void end(){
+        active = null;
+    }
+
+    boolean contains(AircraftSheet sheet){
+        return shooters.contains(sheet);
+    }
+
+    boolean isSingle(){
+        return shooters.size() == 1;
+    }
+
+    // Adds the target, or drops it again when it was already picked. Returns true when it is now a target.
+    boolean toggleTarget(GamePiece target){
+        target = Decorator.getOutermost(target);
+        for(var shooter : shooters){
+            if(Decorator.getOutermost(shooter) == target){
+                return false; // no shooting at yourself
+            }
+        }
+        if(targets.remove(target)){
+            return false;
+        }
+        targets.add(target);
+        return true;
+    }
+
+    // The salvo rule on target indices 0..targets-1: shooter i fires at the (i mod n)-th target still standing and hits
+    // when its roll is at most HIT_CHANCE. Reports every destroyed target and returns the number of shots fired.
+    // Pure, so OddsPreview runs the very same rule for its trials.
+    static int fireShots(int shooters, int targets, DoubleSupplier roll, IntConsumer destroyed){
+        var alive = new int[targets];
+        for(var t = 0; t < targets; t++){
+            alive[t] = t;
+        }
+        var standing = targets;
+        var shots = 0;
+        for(var i = 0; i < shooters && standing > 0; i++){
+            var k = i % standing;
+            shots++;
+            if(roll.getAsDouble() <= HIT_CHANCE){
+                destroyed.accept(alive[k]);
+                System.arraycopy(alive, k + 1, alive, k, standing - k - 1);
+                standing--;
+            }
+        }
+        return shots;
+    }
+
+    // Rolls every shot with the module RNG and returns the whole result as one command, not yet executed.
+    // Shooters are spread over the targets still standing, so no shot is wasted on a destroyed target.
+    Command resolve(){
+        return resolve(GameModule.getGameModule().getRNG());
+    }
+
+    Command resolve(Random rng){
+        var mod = GameModule.getGameModule();
+        var destroyed = new ArrayList<GamePiece>();
+        var hits = new int[1];
+        var lastRoll = new double[1];
+        var shots = fireShots(shooters.size(), targets.size(), () -> lastRoll[0] = rng.nextDouble(), t -> {
+            hits[0]++;
+            destroyed.add(targets.get(t));
+        });
+
+        String text;
+        if(shots == 1){
+            text = String.format("Firing Resolution: %f => %b", lastRoll[0], hits[0] == 1);
+        }else{
+            var sb = new StringBuilder("Salvo Resolution: ")
+                    .append(shots).append(" shots at ").append(targets.size()).append(" targets, ")
+                    .append(hits[0]).append(hits[0] == 1 ? " hit" : " hits");
+            for(var i = 0; i < destroyed.size(); i++){
+                sb.append(i == 0 ? " - destroyed " : ", ").append(destroyed.get(i).getName());
+            }
+            text = sb.toString();
+        }
+
+        Command c = new Chatter.DisplayText(mod.getChatter(), text);
+        for(var target : destroyed){
+            c = c.append(new RemovePiece(target));
+            var sheet = Decorator.getDecorator(target, AircraftSheet.class);
+            if(sheet != null){
+                AircraftIndex.getInstance().remove((AircraftSheet)sheet);
+            }
+        }
+        return c;
+    }
+}
@@ -0,0 +1,42 @@
+package yyz;
+
+import VASSAL.command.Command;
+
+// Changes mediumDetectionRange of a single AircraftSheet.
+public class SetDetectionRange extends WaypointCommand {
+    public static final String ID = "YyzSetDetectionRange;";
+
+    private final int oldRange;
+    private final int newRange;
+
+    public SetDetectionRange(String pieceId, int oldRange, int newRange){
+        super(pieceId);
+        this.oldRange = oldRange;
+        this.newRange = newRange;
+    }
+
+    public int getOldRange(){
+        return oldRange;
+    }
+
+    public int getNewRange(){
+        return newRange;
+    }
+
+    @Override
+    protected void executeCommand(){
+        var sheet = findSheet();
+        if(sheet == null){
+            return;
+        }
+        var before = sheet.extent();
+        sheet.mediumDetectionRange = newRange;
+        VisibilityEngine.getInstance().markDirty(sheet);
+        sheet.repaintExtent(before); // the range ring changed
+    }
+
+    @Override
+    protected Command myUndoCommand(){
+        return new SetDetectionRange(pieceId, newRange, oldRange);
+    }
+}
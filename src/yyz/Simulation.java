@@ -0,0 +1,234 @@
+package yyz;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// In-memory core of movement and detection: positions, routes, movement allowance, detection range and side.
+// It knows nothing about GameModule, maps, commands or Swing, so regression tests, benchmarks and batch scenario runs
+// can step thousands of units for many turns headless. AircraftSheet, MovementPhase and VisibilityEngine use the same
+// stepping and range rules, so a headless run moves and detects exactly like the module does.
+public final class Simulation {
+    // Units stepped sequentially below this, forking costs more than it saves for a handful of routes.
+    static final int PARALLEL_THRESHOLD = 256;
+
+    // Same cell edge as AircraftIndex.CELL_SIZE, repeated so this class compiles without Vassal on the class path.
+    static final int DEFAULT_CELL_SIZE = 256;
+
+    public static final class Unit {
+        public final int id;
+        public final String side;
+        final WaypointPath route = new WaypointPath();
+        double movementAllowance;
+        int detectionRange;
+        int x;
+        int y;
+        private final Step step = new Step(); // scratch of advance(), one per unit so the stepping can fork
+
+        Unit(int id, String side, int x, int y, double movementAllowance, int detectionRange){
+            this.id = id;
+            this.side = side;
+            this.x = x;
+            this.y = y;
+            this.movementAllowance = movementAllowance;
+            this.detectionRange = detectionRange;
+        }
+
+        public int x(){
+            return x;
+        }
+
+        public int y(){
+            return y;
+        }
+
+        public WaypointPath route(){
+            return route;
+        }
+
+        public int detectionRange(){
+            return detectionRange;
+        }
+
+        public double movementAllowance(){
+            return movementAllowance;
+        }
+    }
+
+    // Outcome of stepping along a route: the reached position and how many waypoints were passed.
+    static final class Step {
+        int x;
+        int y;
+        int consumed;
+
+        Point position(){
+            return new Point(x, y);
+        }
+    }
+
+    // Pure path stepping, it only reads its arguments so it can run for many units in parallel.
+    static void stepAlong(int startX, int startY, WaypointPath route, double movement, Step out){
+        var currentX = startX;
+        var currentY = startY;
+        var consumed = 0;
+        var size = route.size();
+
+        while(movement > 0 && consumed < size){
+
+            var nextX = route.x(consumed);
+            var nextY = route.y(consumed);
+            var dist = Math.hypot(nextX - currentX, nextY - currentY);
+            if(movement >= dist){
+                movement -= dist;
+                consumed++;
+                currentX = nextX;
+                currentY = nextY;
+            }else{
+                var p = movement / dist;
+                var x = currentX * (1-p) + nextX * p;
+                var y = currentY * (1-p) + nextY * p;
+                currentX = (int)Math.floor(x);
+                currentY = (int)Math.floor(y);
+
+                movement = 0;
+            }
+        }
+        out.x = currentX;
+        out.y = currentY;
+        out.consumed = consumed;
+    }
+
+    // The detection rule: a target is seen when it lies within `range` of the observer, borders included.
+    static boolean inRange(int ox, int oy, double range, int tx, int ty){
+        double dx = tx - ox;
+        double dy = ty - oy;
+        return dx * dx + dy * dy <= range * range;
+    }
+
+    private final int cellSize;
+    private final ArrayList<Unit> units = new ArrayList<>();
+    private final HashMap<String, SpatialGrid<Unit>> grids = new HashMap<>(); // side -> grid
+    private int nextId;
+
+    public Simulation(){
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public Simulation(int cellSize){
+        this.cellSize = cellSize;
+    }
+
+    public Unit add(String side, int x, int y, double movementAllowance, int detectionRange){
+        var unit = new Unit(nextId++, side, x, y, movementAllowance, detectionRange);
+        units.add(unit);
+        grids.computeIfAbsent(side, s -> new SpatialGrid<>(cellSize)).put(unit, x, y);
+        return unit;
+    }
+
+    public void remove(Unit unit){
+        if(units.remove(unit)){
+            grids.get(unit.side).remove(unit);
+        }
+    }
+
+    public List<Unit> units(){
+        return Collections.unmodifiableList(units);
+    }
+
+    public int size(){
+        return units.size();
+    }
+
+    public void moveTo(Unit unit, int x, int y){
+        unit.x = x;
+        unit.y = y;
+        grids.get(unit.side).put(unit, x, y);
+    }
+
+    public void setDetectionRange(Unit unit, int range){
+        unit.detectionRange = range;
+    }
+
+    // One movement phase: every unit moves its allowance along its route, reached waypoints are consumed.
+    // Returns the number of units that changed position.
+    public int advance(){
+        stepAll();
+        return applySteps();
+    }
+
+    // advance(), reporting every (observer, target) pair that comes into range on the way, in time order.
+    // The units move simultaneously, see PulseScheduler, so contacts in the middle of a move are not missed.
+    public int advance(BiConsumer<Unit, Unit> contact){
+        stepAll();
+        var tracks = new ArrayList<PulseScheduler.Track<Unit>>(units.size());
+        for(var u : units){
+            tracks.add(PulseScheduler.Track.moving(u, u.side, u.detectionRange, u.x, u.y, u.route, u.step.consumed,
+                    u.step.x, u.step.y, u.movementAllowance));
+        }
+        for(var c : PulseScheduler.contacts(tracks, cellSize)){
+            contact.accept(c.observer.unit, c.target.unit);
+        }
+        return applySteps();
+    }
+
+    private void stepAll(){
+        if(units.size() < PARALLEL_THRESHOLD){
+            units.forEach(u -> stepAlong(u.x, u.y, u.route, u.movementAllowance, u.step));
+        }else{
+            units.parallelStream().forEach(u -> stepAlong(u.x, u.y, u.route, u.movementAllowance, u.step));
+        }
+    }
+
+    private int applySteps(){
+        // The grids are not thread safe, so the results are applied on this thread.
+        var moved = 0;
+        for(var u : units){
+            u.route.consume(u.step.consumed);
+            if(u.step.x != u.x || u.step.y != u.y){
+                moveTo(u, u.step.x, u.step.y);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    // Every unit of another side within the detection range of `observer`. Units without a side don't detect.
+    public void forEachDetected(Unit observer, Consumer<Unit> action){
+        if(observer.side.isEmpty()){
+            return;
+        }
+        for(var entry : grids.entrySet()){
+            if(entry.getKey().equals(observer.side)){
+                continue;
+            }
+            entry.getValue().forEachCandidate(observer.x, observer.y, observer.detectionRange, target -> {
+                if(inRange(observer.x, observer.y, observer.detectionRange, target.x, target.y)){
+                    action.accept(target);
+                }
+            });
+        }
+    }
+
+    public List<Unit> detected(Unit observer){
+        var result = new ArrayList<Unit>();
+        forEachDetected(observer, result::add);
+        return result;
+    }
+
+    // Every (observer, target) detection pair of the current positions.
+    public void forEachDetection(BiConsumer<Unit, Unit> action){
+        for(var observer : units){
+            forEachDetected(observer, target -> action.accept(observer, target));
+        }
+    }
+
+    public int countDetections(){
+        var count = new int[1];
+        forEachDetection((o, t) -> count[0]++);
+        return count[0];
+    }
+}
@@ -0,0 +1,109 @@
+package yyz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.function.Consumer;
+
+// Uniform grid bucketing items by the cell of their last known position. It knows nothing about Vassal,
+// so AircraftIndex, the headless simulation and the benchmarks share it.
+public final class SpatialGrid<T> {
+    private final int cellSize;
+    private final HashMap<Long, ArrayList<T>> cells = new HashMap<>();
+    private final IdentityHashMap<T, Long> cellOfItem = new IdentityHashMap<>();
+
+    public SpatialGrid(int cellSize){
+        this.cellSize = cellSize;
+    }
+
+    static long cellKey(int cx, int cy){
+        return ((long)cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private int cellOf(double v){
+        return (int)Math.floor(v / cellSize);
+    }
+
+    public int size(){
+        return cellOfItem.size();
+    }
+
+    public boolean isEmpty(){
+        return cellOfItem.isEmpty();
+    }
+
+    public boolean contains(T item){
+        return cellOfItem.containsKey(item);
+    }
+
+    // Inserts the item, or moves it if it is already stored. Returns true when its cell changed.
+    public boolean put(T item, int x, int y){
+        var key = cellKey(cellOf(x), cellOf(y));
+        var old = cellOfItem.put(item, key);
+        if(old != null){
+            if(old == key){
+                return false;
+            }
+            removeFromCell(item, old);
+        }
+        cells.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+        return true;
+    }
+
+    public void remove(T item){
+        var old = cellOfItem.remove(item);
+        if(old != null){
+            removeFromCell(item, old);
+        }
+    }
+
+    private void removeFromCell(T item, long key){
+        var bucket = cells.get(key);
+        if(bucket != null){
+            bucket.remove(item);
+            if(bucket.isEmpty()){
+                cells.remove(key);
+            }
+        }
+    }
+
+    public void clear(){
+        cells.clear();
+        cellOfItem.clear();
+    }
+
+    // Visits every item whose cell overlaps the square of half side `range` around (x, y).
+    // Callers still have to check the exact distance. The action must not modify the grid.
+    public void forEachCandidate(double x, double y, double range, Consumer<T> action){
+        if(range < 0){
+            return;
+        }
+        var minCx = cellOf(x - range);
+        var maxCx = cellOf(x + range);
+        var minCy = cellOf(y - range);
+        var maxCy = cellOf(y + range);
+
+        var cellCount = (long)(maxCx - minCx + 1) * (maxCy - minCy + 1);
+        if(cellCount > cells.size()){
+            // Huge range compared to the occupied cells: walk the buckets instead of the covered cells.
+            for(var entry : cells.entrySet()){
+                var key = entry.getKey();
+                var cx = (int)(key >> 32);
+                var cy = (int)(long)key;
+                if(cx >= minCx && cx <= maxCx && cy >= minCy && cy <= maxCy){
+                    entry.getValue().forEach(action);
+                }
+            }
+            return;
+        }
+
+        for(var cx = minCx; cx <= maxCx; cx++){
+            for(var cy = minCy; cy <= maxCy; cy++){
+                var bucket = cells.get(cellKey(cx, cy));
+                if(bucket != null){
+                    bucket.forEach(action);
+                }
+            }
+        }
+    }
+}
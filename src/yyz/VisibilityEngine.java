@@ -0,0 +1,293 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.GameComponent;
+import VASSAL.command.ChangeTracker;
+import VASSAL.command.Command;
+import VASSAL.command.NullCommand;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Hideable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+// Fog of war per side: which aircraft sees which enemy, kept up to date incrementally.
+// AircraftIndex marks a piece dirty whenever its map, position or state changes (SetDetectionRange does the same for
+// its range), and refresh() only recomputes the relations of the dirty pieces, in both directions. The dirty set holds
+// pieces on a map and those with relations left, so it stays bounded by the game even without a local refresh. A hidden piece seen
+// by any enemy is revealed. A piece revealed here is hidden again, with the HIDDEN_BY it had before, once no enemy
+// sees it any more; that value is kept in the AircraftSheet state (concealedBy) so it survives saves and other clients.
+public class VisibilityEngine implements GameComponent {
+    private static final VisibilityEngine instance = new VisibilityEngine();
+
+    public static VisibilityEngine getInstance(){
+        return instance;
+    }
+
+    // observer -> enemies within its range, and the reverse
+    private final IdentityHashMap<AircraftSheet, Set<AircraftSheet>> sees = new IdentityHashMap<>();
+    private final IdentityHashMap<AircraftSheet, Set<AircraftSheet>> seenBy = new IdentityHashMap<>();
+
+    private final Set<AircraftSheet> dirty = newSet();
+
+    // Upper bound of every detection range seen so far, the search radius when looking for the observers of a piece.
+    private int maxRange;
+
+    private static Set<AircraftSheet> newSet(){
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    // A piece off the maps (palette entry, copy, piece taken off its map) only matters while it still has relations to
+    // drop, anything else would pile up here as long as no local refresh drains the set. The GameState is not asked:
+    // a loaded or added piece takes its position before it is registered there.
+    void markDirty(AircraftSheet sheet){
+        if((sheet.getMap() != null && sheet.getPosition() != null) || sees.containsKey(sheet) || seenBy.containsKey(sheet)){
+            dirty.add(sheet);
+        }else{
+            dirty.remove(sheet);
+        }
+    }
+
+    // Drops a piece deleted from the game (AircraftIndex finds those while querying) unless it has relations to drop.
+    void discard(AircraftSheet sheet){
+        if(!sees.containsKey(sheet) && !seenBy.containsKey(sheet) && !isAlive(sheet, GameModule.getGameModule().getGameState()::getPieceForId)){
+            dirty.remove(sheet);
+        }
+    }
+
+    public boolean isSeen(AircraftSheet sheet){
+        return seenBy.containsKey(sheet);
+    }
+
+    // Relations of moved pieces worked out off the EDT from snapshots (MovePipeline): each pair with a moved piece in it
+    // at the new positions, and the pieces that came into an enemy's range on the way.
+    static final class Moves {
+        final Set<AircraftSheet> moved = newSet();
+        final List<AircraftSheet> observers = new ArrayList<>();
+        final List<AircraftSheet> targets = new ArrayList<>(); // seen by the observer at the same index
+        final List<AircraftSheet> spotted = new ArrayList<>();
+    }
+
+    // Longest detection range of any piece, including the dirty ones not refreshed yet.
+    int maxRange(){
+        for(var sheet : dirty){
+            maxRange = Math.max(maxRange, sheet.mediumDetectionRange);
+        }
+        return maxRange;
+    }
+
+    // Brings the relations of every dirty piece up to date, then reveals or hides the pieces whose visibility changed.
+    // The changes are applied locally and returned as one command for the caller to send. Names of revealed pieces
+    // go to `revealed`, names of pieces hidden again to `lost`.
+    public Command refresh(List<String> revealed, List<String> lost){
+        return refresh(new Moves(), new ArrayList<>(), revealed, lost);
+    }
+
+    // refresh() after a move. The moved pieces take their relations from `moves` instead of querying the index, any
+    // other dirty piece is recomputed as usual, which also corrects the pairs of a piece that changed while `moves`
+    // was worked out. The pieces spotted on the way count as seen like the ones still in range at the end, so a hidden
+    // one is revealed before its name goes to `passed`. One that nobody sees at the end stays dirty, so the next refresh
+    // hides it again.
+    public Command refresh(Moves moves, List<String> passed, List<String> revealed, List<String> lost){
+        return refresh(GameModule.getGameModule().getGameState()::getPieceForId, moves, passed, revealed, lost);
+    }
+
+    Command refresh(Function<String, GamePiece> pieceForId, Moves moves, List<String> passed, List<String> revealed, List<String> lost){
+        var t0 = Perf.start();
+        var candidates = new LinkedHashSet<AircraftSheet>(); // stable order for the chat summary
+        var spottedSet = newSet();
+        spottedSet.addAll(moves.spotted);
+        candidates.addAll(moves.spotted);
+
+        for(var sheet : moves.moved){
+            maxRange = Math.max(maxRange, sheet.mediumDetectionRange);
+            forget(sheet, candidates);
+            candidates.add(sheet);
+            dirty.remove(sheet); // marked by the move itself
+        }
+        for(var i = 0; i < moves.observers.size(); i++){
+            var observer = moves.observers.get(i);
+            var target = moves.targets.get(i);
+            if(isAlive(observer, pieceForId) && isAlive(target, pieceForId) && link(observer, target)){
+                candidates.add(target);
+            }
+        }
+
+        while(!dirty.isEmpty()){ // the index may report more stale pieces while we query it
+            var batch = new ArrayList<>(dirty);
+            dirty.clear();
+            for(var sheet : batch){
+                maxRange = Math.max(maxRange, sheet.mediumDetectionRange);
+            }
+            for(var sheet : batch){
+                candidates.add(sheet);
+                if(isAlive(sheet, pieceForId)){
+                    recompute(sheet, candidates);
+                }else{
+                    forget(sheet, candidates);
+                }
+            }
+        }
+
+        Command c = new NullCommand();
+        for(var target : candidates){
+            if(!isAlive(target, pieceForId)){
+                continue;
+            }
+            var p = Decorator.getOutermost(target);
+            var hiddenBy = p.getProperty(Hideable.HIDDEN_BY); // Hideable is the internal name of Invisible, check Vassal Source code for detail
+            var spottedOnTheWay = spottedSet.contains(target); // listed in `passed` instead
+            var seen = spottedOnTheWay || seenBy.containsKey(target);
+            if(spottedOnTheWay && !seenBy.containsKey(target)){
+                dirty.add(target); // out of range again, shown only for this move
+            }
+            if(seen && hiddenBy != null){
+                var changeTracker = new ChangeTracker(p);
+                target.concealedBy = hiddenBy.toString();
+                p.setProperty(Hideable.HIDDEN_BY, null);
+                c = c.append(changeTracker.getChangeCommand());
+                if(!spottedOnTheWay){
+                    revealed.add(p.getName());
+                }
+            }else if(!seen && hiddenBy == null && target.concealedBy != null){
+                lost.add(p.getName()); // while it still has a name to show
+                var changeTracker = new ChangeTracker(p);
+                p.setProperty(Hideable.HIDDEN_BY, target.concealedBy);
+                target.concealedBy = null;
+                c = c.append(changeTracker.getChangeCommand());
+            }
+        }
+        for(var target : moves.spotted){
+            if(isAlive(target, pieceForId)){
+                passed.add(Decorator.getOutermost(target).getName()); // revealed above if it was hidden
+            }
+        }
+        Perf.stop(Perf.VISIBILITY, t0);
+        return c;
+    }
+
+    // " - 2 new contacts: a, b - 1 contact lost: c", or "" when nothing changed.
+    static String describe(List<String> revealed, List<String> lost){
+        return describe(List.of(), revealed, lost);
+    }
+
+    // Also lists the pieces spotted during a move, see refresh(moves, ...).
+    static String describe(List<String> passed, List<String> revealed, List<String> lost){
+        var sb = new StringBuilder();
+        if(!passed.isEmpty()){
+            sb.append(String.format(" - %d contact%s on the way: %s", passed.size(), passed.size() == 1 ? "" : "s", String.join(", ", passed)));
+        }
+        if(!revealed.isEmpty()){
+            sb.append(String.format(" - %d new contact%s: %s", revealed.size(), revealed.size() == 1 ? "" : "s", String.join(", ", revealed)));
+        }
+        if(!lost.isEmpty()){
+            sb.append(String.format(" - %d contact%s lost: %s", lost.size(), lost.size() == 1 ? "" : "s", String.join(", ", lost)));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isAlive(AircraftSheet sheet, Function<String, GamePiece> pieceForId){
+        // RemovePiece does not tell the trait, so deleted pieces are detected here.
+        return sheet.getMap() != null && sheet.getPosition() != null
+                && pieceForId.apply(Decorator.getOutermost(sheet).getId()) != null;
+    }
+
+    private void recompute(AircraftSheet sheet, Set<AircraftSheet> candidates){
+        var index = AircraftIndex.getInstance();
+        var map = sheet.getMap();
+        var pos = sheet.getPosition();
+        var side = AircraftIndex.sideOf(sheet);
+
+        // As observer: enemies within our range. Pieces without a side don't detect, as before.
+        var targets = newSet();
+        if(!side.isEmpty()){
+            targets.addAll(index.findEnemies(map, side, pos, sheet.mediumDetectionRange));
+        }
+        for(var t : new ArrayList<>(sees.getOrDefault(sheet, Collections.emptySet()))){
+            if(!targets.contains(t)){
+                unlink(sheet, t);
+                candidates.add(t);
+            }
+        }
+        for(var t : targets){
+            if(link(sheet, t)){
+                candidates.add(t);
+            }
+        }
+
+        // As target: enemies whose own range reaches us.
+        var observers = newSet();
+        for(var o : index.findEnemies(map, side, pos, maxRange)){
+            var at = o.getPosition();
+            if(!AircraftIndex.sideOf(o).isEmpty() && Simulation.inRange(at.x, at.y, o.mediumDetectionRange, pos.x, pos.y)){
+                observers.add(o);
+            }
+        }
+        for(var o : new ArrayList<>(seenBy.getOrDefault(sheet, Collections.emptySet()))){
+            if(!observers.contains(o)){
+                unlink(o, sheet);
+            }
+        }
+        for(var o : observers){
+            link(o, sheet);
+        }
+    }
+
+    private void forget(AircraftSheet sheet, Set<AircraftSheet> candidates){
+        var targets = sees.get(sheet);
+        if(targets != null){
+            for(var t : new ArrayList<>(targets)){
+                unlink(sheet, t);
+                candidates.add(t);
+            }
+        }
+        var observers = seenBy.get(sheet);
+        if(observers != null){
+            for(var o : new ArrayList<>(observers)){
+                unlink(o, sheet);
+            }
+        }
+    }
+
+    // Returns true when the pair is new.
+    private boolean link(AircraftSheet observer, AircraftSheet target){
+        seenBy.computeIfAbsent(target, t -> newSet()).add(observer);
+        return sees.computeIfAbsent(observer, o -> newSet()).add(target);
+    }
+
+    private void unlink(AircraftSheet observer, AircraftSheet target){
+        var targets = sees.get(observer);
+        if(targets != null && targets.remove(target) && targets.isEmpty()){
+            sees.remove(observer);
+        }
+        var observers = seenBy.get(target);
+        if(observers != null && observers.remove(observer) && observers.isEmpty()){
+            seenBy.remove(target);
+        }
+    }
+
+    public void clear(){
+        sees.clear();
+        seenBy.clear();
+        dirty.clear();
+        maxRange = 0;
+    }
+
+    @Override
+    public void setup(boolean gameStarting){
+        if(!gameStarting){
+            clear();
+        }
+    }
+
+    @Override
+    public Command getRestoreCommand(){
+        return null;
+    }
+}
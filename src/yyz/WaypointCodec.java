@@ -0,0 +1,88 @@
+package yyz;
+
+import java.util.Arrays;
+
+// Compact text encoding of a waypoint list, used by the version 2 AircraftSheet state.
+// Each coordinate is stored as the zigzag encoded delta to the previous one, written as a variable length
+// sequence of 5-bit groups. A group is one character of a 64 letter alphabet: the first 32 letters end a number,
+// the last 32 letters announce more groups. The alphabet contains neither ';' nor '\' so SequenceEncoder never escapes it.
+public final class WaypointCodec {
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for(var i = 0; i < ALPHABET.length; i++){
+            VALUES[ALPHABET[i]] = i;
+        }
+    }
+
+    private WaypointCodec(){
+    }
+
+    public static String encode(WaypointPath waypoints){
+        var n = waypoints.size();
+        var sb = new StringBuilder(n * 4);
+        var px = 0;
+        var py = 0;
+        for(var i = 0; i < n; i++){
+            var x = waypoints.x(i);
+            var y = waypoints.y(i);
+            writeVarint(sb, x - px);
+            writeVarint(sb, y - py);
+            px = x;
+            py = y;
+        }
+        return sb.toString();
+    }
+
+    // Appends the decoded waypoints to `out`.
+    public static void decode(String s, WaypointPath out){
+        var pos = 0;
+        var px = 0;
+        var py = 0;
+        var len = s.length();
+        var value = 0;
+        var shift = 0;
+        var haveX = false;
+        var x = 0;
+        while(pos < len){
+            var c = s.charAt(pos++);
+            var v = c < 128 ? VALUES[c] : -1;
+            if(v < 0){
+                throw new IllegalArgumentException("Illegal waypoint character '" + c + "' in " + s);
+            }
+            value |= (v & 31) << shift;
+            if(v >= 32){
+                shift += 5;
+                continue;
+            }
+
+            var delta = (value >>> 1) ^ -(value & 1); // undo zigzag
+            value = 0;
+            shift = 0;
+            if(!haveX){
+                x = px + delta;
+                haveX = true;
+            }else{
+                var y = py + delta;
+                out.add(x, y);
+                px = x;
+                py = y;
+                haveX = false;
+            }
+        }
+        if(haveX || shift != 0){
+            throw new IllegalArgumentException("Truncated waypoint string " + s);
+        }
+    }
+
+    private static void writeVarint(StringBuilder sb, int v){
+        var z = (v << 1) ^ (v >> 31); // zigzag, small negative deltas stay short
+        while((z & ~31) != 0){
+            sb.append(ALPHABET[32 | (z & 31)]);
+            z >>>= 5;
+        }
+        sb.append(ALPHABET[z]);
+    }
+}
@@ -0,0 +1,24 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.command.Command;
+import VASSAL.counters.Decorator;
+
+// Base of the incremental AircraftSheet commands. They carry only the changed part of the trait
+// instead of the full old and new state of the outermost piece a ChangePiece would send.
+public abstract class WaypointCommand extends Command {
+    protected final String pieceId;
+
+    protected WaypointCommand(String pieceId){
+        this.pieceId = pieceId;
+    }
+
+    public String getPieceId(){
+        return pieceId;
+    }
+
+    protected AircraftSheet findSheet(){
+        var p = GameModule.getGameModule().getGameState().getPieceForId(pieceId);
+        return p == null ? null : (AircraftSheet)Decorator.getDecorator(p, AircraftSheet.class);
+    }
+}
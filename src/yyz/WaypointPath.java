@@ -0,0 +1,219 @@
+package yyz;
+
+import java.awt.*;
+
+// Route of an AircraftSheet as two primitive coordinate buffers with a head cursor.
+// Consuming reached waypoints only moves the cursor, so movement, state decoding and drawing allocate nothing per point.
+public final class WaypointPath {
+    private int[] xs;
+    private int[] ys;
+    private int head;
+    private int tail;
+    private int version; // bumped on every change, lets renderers cache derived geometry
+
+    private int boundsVersion = -1;
+    private final Rectangle bounds = new Rectangle();
+
+    public WaypointPath(){
+        this(8);
+    }
+
+    public WaypointPath(int capacity){
+        xs = new int[Math.max(capacity, 1)];
+        ys = new int[xs.length];
+    }
+
+    public int size(){
+        return tail - head;
+    }
+
+    public boolean isEmpty(){
+        return tail == head;
+    }
+
+    public int version(){
+        return version;
+    }
+
+    public int x(int i){
+        return xs[head + i];
+    }
+
+    public int y(int i){
+        return ys[head + i];
+    }
+
+    public void add(int x, int y){
+        version++;
+        if(tail == xs.length){
+            makeRoom(1);
+        }
+        xs[tail] = x;
+        ys[tail] = y;
+        tail++;
+    }
+
+    public void addAll(WaypointPath other){
+        addAll(other, 0, other.size());
+    }
+
+    // Appends the points `from` (inclusive) to `to` (exclusive) of `other`.
+    public void addAll(WaypointPath other, int from, int to){
+        version++;
+        var n = to - from;
+        if(tail + n > xs.length){
+            makeRoom(n);
+        }
+        System.arraycopy(other.xs, other.head + from, xs, tail, n);
+        System.arraycopy(other.ys, other.head + from, ys, tail, n);
+        tail += n;
+    }
+
+    // Inserts all points of `other` in front of the route.
+    public void prepend(WaypointPath other){
+        version++;
+        var n = other.size();
+        if(n > head){
+            var size = size();
+            var newXs = new int[Math.max(xs.length, n + size + 1)];
+            var newYs = new int[newXs.length];
+            System.arraycopy(xs, head, newXs, n, size);
+            System.arraycopy(ys, head, newYs, n, size);
+            xs = newXs;
+            ys = newYs;
+            head = n;
+            tail = n + size;
+        }
+        head -= n;
+        System.arraycopy(other.xs, other.head, xs, head, n);
+        System.arraycopy(other.ys, other.head, ys, head, n);
+    }
+
+    // Drops the first `n` points in O(1).
+    public void consume(int n){
+        version++;
+        head += Math.min(n, size());
+        if(head == tail){
+            head = tail = 0;
+        }
+    }
+
+    // Drops the last `n` points.
+    public void retract(int n){
+        version++;
+        tail -= Math.min(n, size());
+        if(head == tail){
+            head = tail = 0;
+        }
+    }
+
+    public void clear(){
+        version++;
+        head = tail = 0;
+    }
+
+    // Smallest rectangle containing every point, recomputed only after a change. Empty routes give an empty rectangle.
+    public Rectangle bounds(){
+        if(boundsVersion != version){
+            boundsVersion = version;
+            if(isEmpty()){
+                bounds.setBounds(0, 0, 0, 0);
+            }else{
+                int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+                for(var i = head; i < tail; i++){
+                    minX = Math.min(minX, xs[i]);
+                    maxX = Math.max(maxX, xs[i]);
+                    minY = Math.min(minY, ys[i]);
+                    maxY = Math.max(maxY, ys[i]);
+                }
+                bounds.setBounds(minX, minY, maxX - minX, maxY - minY);
+            }
+        }
+        return new Rectangle(bounds);
+    }
+
+    // Douglas-Peucker: drops the points that lie within `tolerance` of the route through the points kept. The route is
+    // flown from (startX, startY), which anchors its first leg without being part of it. The last point always stays.
+    public WaypointPath simplify(int startX, int startY, double tolerance){
+        var n = size();
+        if(n < 2 || tolerance <= 0){
+            return copy();
+        }
+        // Vertex 0 is the start, vertex i + 1 is point i.
+        var keep = new boolean[n + 1];
+        keep[0] = keep[n] = true;
+        var stack = new int[2 * (n + 1)]; // pending spans are disjoint, so there are never more than n of them
+        var top = 0;
+        stack[top++] = 0;
+        stack[top++] = n;
+        while(top > 0){
+            var b = stack[--top];
+            var a = stack[--top];
+            double ax = a == 0 ? startX : x(a - 1), ay = a == 0 ? startY : y(a - 1);
+            double bx = x(b - 1), by = y(b - 1);
+            var farthest = -1;
+            var max = tolerance;
+            for(var i = a + 1; i < b; i++){
+                var d = distanceToSegment(x(i - 1), y(i - 1), ax, ay, bx, by);
+                if(d > max){
+                    max = d;
+                    farthest = i;
+                }
+            }
+            if(farthest >= 0){
+                keep[farthest] = true;
+                stack[top++] = a;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = b;
+            }
+        }
+
+        var result = new WaypointPath(n);
+        for(var i = 1; i <= n; i++){
+            if(keep[i]){
+                result.add(x(i - 1), y(i - 1));
+            }
+        }
+        return result;
+    }
+
+    static double distanceToSegment(double px, double py, double ax, double ay, double bx, double by){
+        var dx = bx - ax;
+        var dy = by - ay;
+        var lengthSq = dx * dx + dy * dy;
+        var t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSq));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+
+    public WaypointPath copy(){
+        return copyRange(0, size());
+    }
+
+    public WaypointPath copyRange(int from, int to){
+        var n = to - from;
+        var result = new WaypointPath(n);
+        System.arraycopy(xs, head + from, result.xs, 0, n);
+        System.arraycopy(ys, head + from, result.ys, 0, n);
+        result.tail = n;
+        return result;
+    }
+
+    private void makeRoom(int extra){
+        var size = size();
+        if(head > 0 && size + extra <= xs.length){
+            // Reuse the space freed by consumed points before growing.
+            System.arraycopy(xs, head, xs, 0, size);
+            System.arraycopy(ys, head, ys, 0, size);
+        }else{
+            var newXs = new int[Math.max(xs.length * 2, size + extra)];
+            var newYs = new int[newXs.length];
+            System.arraycopy(xs, head, newXs, 0, size);
+            System.arraycopy(ys, head, newYs, 0, size);
+            xs = newXs;
+            ys = newYs;
+        }
+        head = 0;
+        tail = size;
+    }
+}
@@ -1,13 +1,147 @@
 package yyz;
 
+import VASSAL.build.Buildable;
+import VASSAL.build.GameModule;
+import VASSAL.build.module.GameState;
+import VASSAL.command.AddPiece;
+import VASSAL.command.Command;
 import VASSAL.counters.Decorator;
 import VASSAL.counters.GamePiece;
+import VASSAL.tools.SequenceEncoder;
+import my_custom_component.MyChatter;
+
+import java.util.HashMap;
+import java.util.function.BiFunction;
 
 public class YyzCommandEncoder extends VASSAL.build.module.BasicCommandEncoder{
+    // Custom trait ids (everything up to and including the first ';') to their factories, so decoding a decorator
+    // costs one hash lookup however many custom traits there are. Register new traits here.
+    private static final HashMap<String, BiFunction<String, GamePiece, Decorator>> decorators = new HashMap<>();
+
+    static {
+        decorators.put(AircraftSheet.ID, AircraftSheet::new);
+    }
+
     public Decorator createDecorator(String type, GamePiece inner){
-        if(type.startsWith(AircraftSheet.ID)){
-            return new AircraftSheet(type, inner);
+        var end = type.indexOf(';');
+        if(end >= 0){
+            var factory = decorators.get(type.substring(0, end + 1));
+            if(factory != null){
+                return factory.apply(type, inner);
+            }
         }
         return super.createDecorator(type, inner); // delegate to the builtin encoder
     }
+
+    // Snapshot of the save being encoded on this thread, set from its opening SetupCommand until the snapshot itself
+    // is written. The AddPiece commands of the save come in between, see AircraftSnapshot.
+    private final ThreadLocal<AircraftSnapshot.Restore> saving = new ThreadLocal<>();
+
+    @Override
+    public void addTo(Buildable parent){
+        super.addTo(parent);
+        // Ask GameState after us, so the SetupCommand opening a save reaches encode below before GameState writes it.
+        var gameState = GameModule.getGameModule().getGameState();
+        GameModule.getGameModule().removeCommandEncoder(gameState);
+        GameModule.getGameModule().addCommandEncoder(gameState);
+        // The encoder is the module's entry point for custom code, so hook the spatial index into game start/close here.
+        GameModule.getGameModule().getGameState().addGameComponent(AircraftIndex.getInstance());
+        GameModule.getGameModule().getGameState().addGameComponent(VisibilityEngine.getInstance());
+        GameModule.getGameModule().getGameState().addGameComponent(Salvo.COMPONENT);
+        MyChatter.registerConsoleCommand("/perf", Perf::console);
+    }
+
+    // The incremental AircraftSheet commands are encoded here, everything else goes to the builtin encoder.
+    @Override
+    public String encode(Command c){
+        if(c instanceof CompressedCommand){
+            return CompressedCommand.ID + ((CompressedCommand)c).getPayload();
+        }else if(c instanceof EncodedCommand){
+            return ((EncodedCommand)c).getEncoded(); // encoded by Perf.sendAndLog already
+        }else if(c instanceof GameState.SetupCommand){
+            AircraftSnapshot.Restore restore = ((GameState.SetupCommand)c).isGameStarting() ? null : AircraftSnapshot.Restore.of(c);
+            if(restore != null){
+                saving.set(restore);
+            }else{
+                saving.remove();
+            }
+            return super.encode(c); // written by GameState
+        }else if(c instanceof AddPiece){
+            var restore = saving.get();
+            return super.encode(restore == null ? c : restore.compact((AddPiece)c)); // bare state inside saves with a snapshot
+        }else if(c instanceof AircraftSnapshot.Restore){
+            if(saving.get() == c){
+                saving.remove();
+            }
+            return AircraftSnapshot.ID + ((AircraftSnapshot.Restore)c).getColumns().encode();
+        }else if(c instanceof AppendWaypoints){
+            var a = (AppendWaypoints)c;
+            var se = new SequenceEncoder(a.getPieceId(), ';');
+            se.append(a.isRetract());
+            se.append(WaypointCodec.encode(a.getPoints()));
+            return AppendWaypoints.ID + se.getValue();
+        }else if(c instanceof ConsumeWaypoints){
+            var cw = (ConsumeWaypoints)c;
+            var se = new SequenceEncoder(cw.getPieceId(), ';');
+            se.append(cw.isRestore());
+            se.append(WaypointCodec.encode(cw.getPoints()));
+            return ConsumeWaypoints.ID + se.getValue();
+        }else if(c instanceof SetDetectionRange){
+            var sr = (SetDetectionRange)c;
+            var se = new SequenceEncoder(sr.getPieceId(), ';');
+            se.append(sr.getOldRange());
+            se.append(sr.getNewRange());
+            return SetDetectionRange.ID + se.getValue();
+        }
+        return super.encode(c);
+    }
+
+    @Override
+    public Command decode(String s){
+        var t0 = Perf.start();
+        var c = decodeCommand(s);
+        Perf.stop(Perf.DECODE, t0);
+        return c;
+    }
+
+    private Command decodeCommand(String s){
+        if(s.startsWith(CompressedCommand.ID)){
+            var payload = s.substring(CompressedCommand.ID.length());
+            String expanded;
+            try{
+                expanded = CompressedCommand.expand(payload);
+            }catch(IllegalArgumentException e){
+                return null; // damaged, reported like any other undecodable command
+            }
+            var inner = GameModule.getGameModule().decode(expanded); // through every encoder of the module
+            return inner == null ? null : new CompressedCommand(inner, payload);
+        }else if(s.startsWith(AircraftSnapshot.ID)){
+            try{
+                return new AircraftSnapshot.Restore(AircraftSnapshot.Columns.decode(s.substring(AircraftSnapshot.ID.length())));
+            }catch(IllegalArgumentException e){
+                return null;
+            }
+        }else if(s.startsWith(AppendWaypoints.ID)){
+            var sd = new SequenceEncoder.Decoder(s.substring(AppendWaypoints.ID.length()), ';');
+            var id = sd.nextToken();
+            var retract = sd.nextBoolean(false);
+            var points = new WaypointPath();
+            WaypointCodec.decode(sd.nextToken(""), points);
+            return new AppendWaypoints(id, points, retract);
+        }else if(s.startsWith(ConsumeWaypoints.ID)){
+            var sd = new SequenceEncoder.Decoder(s.substring(ConsumeWaypoints.ID.length()), ';');
+            var id = sd.nextToken();
+            var restore = sd.nextBoolean(false);
+            var points = new WaypointPath();
+            WaypointCodec.decode(sd.nextToken(""), points);
+            return new ConsumeWaypoints(id, points, restore);
+        }else if(s.startsWith(SetDetectionRange.ID)){
+            var sd = new SequenceEncoder.Decoder(s.substring(SetDetectionRange.ID.length()), ';');
+            var id = sd.nextToken();
+            var oldRange = sd.nextInt(0);
+            var newRange = sd.nextInt(0);
+            return new SetDetectionRange(id, oldRange, newRange);
+        }
+        return super.decode(s);
+    }
 }
@@ -0,0 +1,54 @@
+package my_custom_component;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChatTagsTest {
+  /**
+   * The three contains() calls the single scan replaced
+   */
+  private static String containsChain(String s) {
+    if (s.contains("@p1")) {
+      return "player1";
+    } else if (s.contains("@p2")) {
+      return "player2";
+    } else if (s.contains("@solo")) {
+      return "solo";
+    }
+    return null;
+  }
+
+  @Test
+  void precedence() {
+    assertEquals("player1", ChatTags.taggedStyle("<Alice> - @solo @p2 @p1"));
+    assertEquals("player2", ChatTags.taggedStyle("<Alice> - @solo then @p2"));
+    assertEquals("solo", ChatTags.taggedStyle("<Alice> - @solo"));
+    assertNull(ChatTags.taggedStyle("<Alice> - mail me at a@b.c"));
+    assertNull(ChatTags.taggedStyle("<Alice> - @p3 @sol @"));
+  }
+
+  @Test
+  void tagsRightAfterAnotherAt() {
+    assertEquals("player1", ChatTags.taggedStyle("@@p1"));
+    assertEquals("solo", ChatTags.taggedStyle("x@@solo@"));
+  }
+
+  @Test
+  void matchesTheContainsChain() {
+    final String[] pieces = {"@", "p", "1", "2", "so", "lo", " ", "x", "@p1", "@p2", "@solo"};
+    final Random random = new Random(17);
+    for (int run = 0; run < 20000; run++) {
+      final StringBuilder sb = new StringBuilder();
+      final int n = random.nextInt(12);
+      for (int i = 0; i < n; i++) {
+        sb.append(pieces[random.nextInt(pieces.length)]);
+      }
+      final String s = sb.toString();
+      assertEquals(containsChain(s), ChatTags.taggedStyle(s), s);
+    }
+  }
+}
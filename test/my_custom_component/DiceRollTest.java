@@ -0,0 +1,68 @@
+package my_custom_component;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiceRollTest {
+  @Test
+  void parsesWithAndWithoutTarget() {
+    final DiceRoll plain = DiceRoll.parse("20d6");
+    assertEquals(20, plain.dice);
+    assertEquals(6, plain.sides);
+    assertEquals(-1, plain.target);
+
+    final DiceRoll targeted = DiceRoll.parse("200 D 10 >= 7");
+    assertEquals(200, targeted.dice);
+    assertEquals(10, targeted.sides);
+    assertEquals(7, targeted.target);
+  }
+
+  @Test
+  void rejectsWhatDoesNotParse() {
+    assertNull(DiceRoll.parse(""));
+    assertNull(DiceRoll.parse("x"));
+    assertNull(DiceRoll.parse("d6"));
+    assertNull(DiceRoll.parse("2d6>5"));
+    assertNull(DiceRoll.parse("2d6 extra"));
+    assertNull(DiceRoll.parse("1234567890d6")); // more than 9 digits would overflow int
+  }
+
+  @Test
+  void limits() {
+    assertTrue(DiceRoll.parse("10000d1000").isWithinLimits());
+    assertFalse(DiceRoll.parse("10001d6").isWithinLimits());
+    assertFalse(DiceRoll.parse("1d1001").isWithinLimits());
+    assertFalse(DiceRoll.parse("0d6").isWithinLimits());
+    assertFalse(DiceRoll.parse("1d0").isWithinLimits());
+  }
+
+  @Test
+  void rollsEveryDieOnce() {
+    final DiceRoll roll = DiceRoll.parse("5000d6");
+    final int[] counts = roll.roll(new Random(1));
+    assertEquals(0, counts[0]);
+    assertEquals(5000, Arrays.stream(counts).sum());
+    for (int v = 1; v <= 6; v++) {
+      assertTrue(counts[v] > 700 && counts[v] < 1000, "count of " + v + ": " + counts[v]);
+    }
+  }
+
+  @Test
+  void describesSuccessesTotalAndHistogram() {
+    final int[] counts = {0, 0, 1, 0, 1, 1, 0};
+    assertEquals("Alice rolls 3d6>=5: 1 success [1:0 2:1 3:0 4:1 5:1 6:0]", DiceRoll.parse("3d6>=5").describe("Alice", counts));
+    assertEquals("Alice rolls 3d6: total 11 [1:0 2:1 3:0 4:1 5:1 6:0]", DiceRoll.parse("3d6").describe("Alice", counts));
+    assertEquals("Alice rolls 3d6>=0: 3 successes [1:0 2:1 3:0 4:1 5:1 6:0]", DiceRoll.parse("3d6>=0").describe("Alice", counts));
+
+    final int[] d100 = new int[101];
+    d100[100] = 2;
+    assertEquals("Bob rolls 2d100: total 200", DiceRoll.parse("2d100").describe("Bob", d100));
+  }
+}
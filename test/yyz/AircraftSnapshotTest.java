@@ -0,0 +1,217 @@
+package yyz;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.GameState;
+import VASSAL.command.AddPiece;
+import VASSAL.command.Command;
+import VASSAL.command.NullCommand;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Marker;
+import VASSAL.tools.SequenceEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AircraftSnapshotTest {
+    private final YyzCommandEncoder encoder = new YyzCommandEncoder();
+
+    // An aircraft under a Marker, so its sheet state sits between two other layers.
+    private static AircraftSheet aircraft(String id, int range, String concealedBy, int... route){
+        var sheet = new AircraftSheet(AircraftSheet.ID, new BasicPiece());
+        var outer = new Marker(Marker.ID + "Side;Red", sheet);
+        outer.setId(id);
+        sheet.mediumDetectionRange = range;
+        sheet.concealedBy = concealedBy;
+        for(var i = 0; i < route.length; i += 2){
+            sheet.waypoints.add(route[i], route[i + 1]);
+        }
+        return sheet;
+    }
+
+    private static GamePiece outer(AircraftSheet sheet){
+        return Decorator.getOutermost(sheet);
+    }
+
+    // What GameState.getRestoreCommand builds: the pieces first, then the component restores.
+    private static Command save(List<AircraftSheet> sheets){
+        Command save = new GameState.SetupCommand(false);
+        var pieces = new NullCommand();
+        for(var sheet : sheets){
+            pieces.append(new AddPiece(outer(sheet)));
+        }
+        save.append(pieces);
+        save.append(AircraftSnapshot.capture(sheets));
+        save.append(new GameState.SetupCommand(true));
+        return save;
+    }
+
+    // GameModule.encode with this encoder only.
+    private String encode(Command c){
+        var s = encoder.encode(c);
+        var sub = c.getSubCommands();
+        if(sub.length > 0){
+            var se = new SequenceEncoder(s, GameModule.COMMAND_SEPARATOR);
+            for(var command : sub){
+                var s2 = encode(command);
+                if(s2 != null){
+                    se.append(s2);
+                }
+            }
+            s = se.getValue();
+        }
+        return s;
+    }
+
+    // The encoded leaf commands, in order.
+    private static List<String> leaves(String s){
+        var out = new ArrayList<String>();
+        leaves(s, out);
+        return out;
+    }
+
+    private static void leaves(String s, List<String> out){
+        var sd = new SequenceEncoder.Decoder(s, GameModule.COMMAND_SEPARATOR);
+        var first = sd.nextToken("");
+        if(first.equals(s)){
+            if(!s.isEmpty()){
+                out.add(s);
+            }
+            return;
+        }
+        leaves(first, out);
+        while(sd.hasMoreTokens()){
+            leaves(sd.nextToken(""), out);
+        }
+    }
+
+    // State of the AddPiece of `id` among `leaves`, the `n`th one when the piece is added several times.
+    private static String addedState(List<String> leaves, String id, int n){
+        for(var leaf : leaves){
+            if(!leaf.startsWith("+/")){
+                continue;
+            }
+            var sd = new SequenceEncoder.Decoder(leaf.substring(2), '/');
+            if(sd.nextToken("").equals(id) && n-- == 0){
+                sd.nextToken(""); // type
+                return sd.nextToken("");
+            }
+        }
+        return null;
+    }
+
+    private AircraftSnapshot.Restore snapshot(List<String> leaves){
+        for(var leaf : leaves){
+            if(leaf.startsWith(AircraftSnapshot.ID)){
+                return (AircraftSnapshot.Restore)encoder.decode(leaf);
+            }
+        }
+        return null;
+    }
+
+    private static void assertSameState(AircraftSheet expected, AircraftSheet actual){
+        assertEquals(expected.mediumDetectionRange, actual.mediumDetectionRange);
+        assertEquals(expected.concealedBy, actual.concealedBy);
+        assertEquals(WaypointCodec.encode(expected.waypoints), WaypointCodec.encode(actual.waypoints));
+    }
+
+    @Test
+    void withSheetStateSplitsAlongTheDecorators(){
+        var sheet = aircraft("a", 300, null, 10, -20, 30, 40);
+        var state = outer(sheet).getState();
+        assertEquals(state, AircraftSnapshot.withSheetState(outer(sheet), state, sheet.myGetState()));
+
+        var bare = AircraftSnapshot.withSheetState(outer(sheet), state, AircraftSheet.STATE_V3);
+        assertNotNull(bare);
+        var inner = new SequenceEncoder.Decoder(bare, '\t');
+        inner.nextToken(); // Marker
+        assertEquals(AircraftSheet.STATE_V3, new SequenceEncoder.Decoder(inner.nextToken(), '\t').nextToken());
+
+        assertNull(AircraftSnapshot.withSheetState(new BasicPiece(), "x", AircraftSheet.STATE_V3));
+    }
+
+    @Test
+    void saveThenLoad(){
+        var a = aircraft("a", 300, null, 10, -20, 30, 40, -5, 7);
+        var b = aircraft("b", 0, "Blue");
+        var written = leaves(encode(save(List.of(a, b))));
+
+        // The pieces carry the bare sheet state, the snapshot everything else
+        for(var id : List.of("a", "b")){
+            var state = addedState(written, id, 0);
+            assertNotNull(state, id);
+            assertTrue(state.contains(AircraftSheet.STATE_V3), state);
+            assertFalse(state.contains(AircraftSheet.STATE_V2 + ";"), state);
+        }
+        var restore = snapshot(written);
+        assertNotNull(restore);
+
+        // Load: the AddPiece commands run first, then the snapshot
+        var loadedA = aircraft("a", 999, "Green", 1, 1);
+        var loadedB = aircraft("b", 999, null, 2, 2);
+        outer(loadedA).setState(addedState(written, "a", 0));
+        outer(loadedB).setState(addedState(written, "b", 0));
+        assertEquals(0, loadedA.waypoints.size());
+
+        var pieces = new HashMap<String, GamePiece>();
+        pieces.put("a", outer(loadedA));
+        pieces.put("b", outer(loadedB));
+        restore.apply(pieces::get);
+        assertSameState(a, loadedA);
+        assertSameState(b, loadedB);
+    }
+
+    @Test
+    void logBeginThenUndoThenWrite(){
+        var a = aircraft("a", 300, null, 10, -20, 30, 40);
+        var beginning = save(List.of(a)); // BasicLogger captures this when the log starts, and encodes it at the end
+
+        // A salvo removes the aircraft, undoing it adds it back: sent to the others while the log is open
+        var undo = new AddPiece(outer(a));
+        var sent = encode(undo);
+        assertTrue(addedState(leaves(sent), "a", 0).contains(AircraftSheet.STATE_V2 + ";"), sent);
+
+        // Writing the log: the beginning state, then the logged commands
+        beginning.append(new NullCommand().append(undo));
+        var written = leaves(encode(beginning));
+        assertTrue(addedState(written, "a", 0).contains(AircraftSheet.STATE_V3));
+        var logged = addedState(written, "a", 1);
+        assertTrue(logged.contains(AircraftSheet.STATE_V2 + ";"), logged);
+
+        // Replaying the logged AddPiece alone restores the whole aircraft
+        var replayed = aircraft("a", 0, null);
+        outer(replayed).setState(logged);
+        assertSameState(a, replayed);
+
+        // And an AddPiece encoded after the log was written is not compacted either
+        assertTrue(addedState(leaves(encode(new AddPiece(outer(a)))), "a", 0).contains(AircraftSheet.STATE_V2 + ";"));
+    }
+
+    @Test
+    void changedAircraftKeepsItsFullState(){
+        var a = aircraft("a", 300, null, 10, -20);
+        var save = save(List.of(a));
+        // Another component's restore adding the aircraft in a different state, before the snapshot
+        a.mediumDetectionRange = 100;
+        var other = new AddPiece(outer(a));
+        var children = save.getSubCommands();
+        Command reordered = new GameState.SetupCommand(false);
+        reordered.append(children[0]);
+        reordered.append(other);
+        for(var i = 1; i < children.length; i++){
+            reordered.append(children[i]);
+        }
+        var written = leaves(encode(reordered));
+        assertTrue(addedState(written, "a", 0).contains(AircraftSheet.STATE_V3));
+        assertTrue(addedState(written, "a", 1).contains(AircraftSheet.STATE_V2 + ";100;"));
+    }
+}
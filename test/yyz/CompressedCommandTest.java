@@ -0,0 +1,44 @@
+package yyz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedCommandTest {
+    @Test
+    void expandReversesCompress(){
+        var random = new Random(20);
+        var sb = new StringBuilder();
+        while(sb.length() < 50000){
+            sb.append("D\t+/").append(random.nextInt(1000)).append("/Fighter;Blue;").append(random.nextInt(5000)).append(',');
+        }
+        sb.append("\u00e9\u4e2d"); // not only ASCII
+        var encoded = sb.toString();
+        var payload = CompressedCommand.compress(encoded);
+        assertTrue(payload.length() < encoded.length() / 2);
+        assertEquals(encoded, CompressedCommand.expand(payload));
+    }
+
+    // A few KB of deflated zeros would inflate to gigabytes, the limit stops it early.
+    @Test
+    void payloadsInflatingBeyondTheLimitAreRejected(){
+        var bomb = CompressedCommand.compress("0".repeat(CompressedCommand.MAX_EXPANDED + 1));
+        assertTrue(bomb.length() < 20000);
+        assertThrows(IllegalArgumentException.class, () -> CompressedCommand.expand(bomb));
+
+        var payload = CompressedCommand.compress("x".repeat(1000));
+        assertEquals(1000, CompressedCommand.expand(payload, 1000).length());
+        assertThrows(IllegalArgumentException.class, () -> CompressedCommand.expand(payload, 999));
+    }
+
+    @Test
+    void damagedPayloadsAreRejected(){
+        var payload = CompressedCommand.compress("some command text ".repeat(100));
+        assertThrows(IllegalArgumentException.class, () -> CompressedCommand.expand(payload.substring(0, payload.length() / 2)));
+        assertThrows(IllegalArgumentException.class, () -> CompressedCommand.expand("not*base64"));
+    }
+}
@@ -0,0 +1,65 @@
+package yyz;
+
+import VASSAL.command.ChangePiece;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Needs Vassal on the classpath for ChangePiece and the builtin encoder, but no running GameModule.
+class LogCompactorTest {
+    private final LogCompactor compactor = new LogCompactor(false);
+    private final YyzCommandEncoder encoder = new YyzCommandEncoder();
+
+    private String change(String id, String oldState, String newState){
+        return encoder.encode(new ChangePiece(id, oldState, newState));
+    }
+
+    private String append(String id, int... coordinates){
+        var points = new WaypointPath();
+        for(var i = 0; i < coordinates.length; i += 2){
+            points.add(coordinates[i], coordinates[i + 1]);
+        }
+        return encoder.encode(new AppendWaypoints(id, points, false));
+    }
+
+    private static final String NARRATION = LogCompactor.CHAT + "Movement";
+
+    @Test
+    void backToBackChangesMerge(){
+        assertEquals(List.of(change("a", "0", "2")), compactor.compactStep(List.of(change("a", "0", "1"), change("a", "1", "2"))));
+    }
+
+    @Test
+    void narrationDoesNotSeparate(){
+        assertEquals(List.of(change("a", "0", "2"), NARRATION),
+                compactor.compactStep(List.of(change("a", "0", "1"), NARRATION, change("a", "1", "2"))));
+    }
+
+    @Test
+    void anotherCommandInBetweenKeepsTheOrder(){
+        var step = List.of(change("a", "0", "1"), change("b", "0", "1"), change("a", "1", "2"));
+        assertEquals(step, compactor.compactStep(step));
+        var mixed = List.of(change("a", "0", "1"), append("a", 1, 2), change("a", "1", "2"));
+        assertEquals(mixed, compactor.compactStep(mixed));
+    }
+
+    @Test
+    void changeBackDisappears(){
+        assertEquals(List.of(), compactor.compactStep(List.of(change("a", "0", "1"), change("a", "1", "0"))));
+    }
+
+    @Test
+    void appendedWaypointsAreConcatenated(){
+        assertEquals(List.of(append("a", 1, 2, 3, 4, 5, 6)), compactor.compactStep(List.of(append("a", 1, 2), append("a", 3, 4, 5, 6))));
+    }
+
+    @Test
+    void stepsStaySeparate(){
+        var first = LogCompactor.LOG + change("a", "0", "1");
+        var second = LogCompactor.LOG + change("a", "1", "2");
+        var log = compactor.join(List.of(first, second));
+        assertEquals(log, compactor.compact(log));
+    }
+}
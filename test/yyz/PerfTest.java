@@ -0,0 +1,64 @@
+package yyz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerfTest {
+    // Buckets are contiguous and ordered: every value lies in the bucket whose limit is the first one at or above it,
+    // and a limit is at most an eighth above the smallest value of its bucket.
+    @Test
+    void bucketsCoverEveryValue(){
+        var random = new Random(19);
+        for(var i = 0; i < 100000; i++){
+            var nanos = i < 1000 ? i : random.nextLong() >>> random.nextInt(64);
+            var bucket = Perf.Timer.bucket(nanos);
+            assertTrue(nanos <= Perf.Timer.bucketLimit(bucket), "value " + nanos);
+            if(bucket > 0){
+                var lower = Perf.Timer.bucketLimit(bucket - 1) + 1;
+                assertTrue(lower <= nanos, "value " + nanos);
+                assertTrue(Perf.Timer.bucketLimit(bucket) - lower <= lower / 8, "value " + nanos);
+            }
+        }
+        assertEquals(0, Perf.Timer.bucket(-5));
+        assertEquals(Long.MAX_VALUE, Perf.Timer.bucketLimit(Perf.Timer.bucket(Long.MAX_VALUE)));
+    }
+
+    // Percentiles are within the bucket resolution of the exact ones, and never above the maximum.
+    @Test
+    void percentilesFollowTheRecordedValues(){
+        var random = new Random(7);
+        var timer = new Perf.Timer("test");
+        var values = new long[10000];
+        for(var i = 0; i < values.length; i++){
+            values[i] = 1000 + (long)(random.nextDouble() * random.nextDouble() * 1e9);
+            timer.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, timer.count());
+        assertEquals(values[values.length - 1], timer.maxNanos());
+        assertEquals(Arrays.stream(values).sum(), timer.totalNanos());
+        for(var p : new double[]{1, 50, 90, 99, 99.9, 100}){
+            var exact = values[(int)Math.ceil(p / 100 * values.length) - 1];
+            var approx = timer.percentile(p);
+            assertTrue(approx >= exact && approx <= exact + exact / 8, p + "%: " + approx + " for " + exact);
+            assertTrue(approx <= timer.maxNanos());
+        }
+    }
+
+    @Test
+    void emptyAndResetTimersReportZero(){
+        var timer = new Perf.Timer("test");
+        assertEquals(0, timer.percentile(50));
+        timer.record(12345);
+        assertEquals(12345, timer.percentile(50));
+        timer.reset();
+        assertEquals(0, timer.count());
+        assertEquals(0, timer.percentile(99));
+        assertEquals(0, timer.maxNanos());
+    }
+}
@@ -0,0 +1,71 @@
+package yyz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PulseSchedulerTest {
+    private static final int PULSES = 10000;
+
+    private static boolean inside(double dx, double dy, double vx, double vy, double r, double u){
+        var x = dx + u * vx;
+        var y = dy + u * vy;
+        return x * x + y * y <= r * r;
+    }
+
+    // The stepped check entry replaces: the first of PULSES + 1 evenly spaced times at which the offset is in range.
+    private static double firstPulse(double dx, double dy, double vx, double vy, double r){
+        for(var i = 0; i <= PULSES; i++){
+            var u = (double)i / PULSES;
+            if(inside(dx, dy, vx, vy, r, u)){
+                return u;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void entryMatchesPerPulseSampling(){
+        var random = new Random(3);
+        for(var run = 0; run < 5000; run++){
+            var dx = random.nextInt(2000) - 1000.;
+            var dy = random.nextInt(2000) - 1000.;
+            var vx = random.nextInt(4000) - 2000.;
+            var vy = random.nextInt(4000) - 2000.;
+            var r = random.nextInt(600);
+
+            var u = PulseScheduler.entry(dx, dy, vx, vy, r);
+            var pulse = firstPulse(dx, dy, vx, vy, r);
+            var message = String.format("run %d: d=(%s,%s) v=(%s,%s) r=%d", run, dx, dy, vx, vy, r);
+            if(pulse >= 0){
+                // entry is exact, so it can only be earlier than the first pulse that sees the contact, by less than one pulse
+                assertTrue(u >= 0, message);
+                assertTrue(u <= pulse && pulse - u < 1. / PULSES, message + " entry " + u + " pulse " + pulse);
+            }else if(u >= 0){
+                // a graze between two pulses: the offset touches the circle at u but is outside at the pulses around it
+                assertTrue(u > 0 && u < 1, message);
+                assertEquals(r, Math.hypot(dx + u * vx, dy + u * vy), 1e-6 * Math.max(1, r), message);
+            }
+        }
+    }
+
+    @Test
+    void alreadyInRangeIsZero(){
+        assertEquals(0, PulseScheduler.entry(3, 4, 100, 100, 5));
+    }
+
+    @Test
+    void movingAwayOrStillIsNever(){
+        assertEquals(-1, PulseScheduler.entry(10, 0, 5, 0, 5));
+        assertEquals(-1, PulseScheduler.entry(10, 0, 0, 0, 5));
+        assertEquals(-1, PulseScheduler.entry(10, 0, -4, 0, 5)); // stops short
+    }
+
+    @Test
+    void headOnEntry(){
+        assertEquals(0.5, PulseScheduler.entry(10, 0, -10, 0, 5), 1e-12);
+    }
+}
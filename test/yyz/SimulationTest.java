@@ -0,0 +1,71 @@
+package yyz;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SimulationTest {
+    // The walk AircraftSheet did before WaypointPath: a list of points, taking waypoints off the front.
+    private static Point naiveWalk(Point start, List<Point> waypoints, double movement){
+        var currentPos = start;
+        while(movement > 0 && !waypoints.isEmpty()){
+            var next = waypoints.get(0);
+            var dist = currentPos.distance(next);
+            if(movement >= dist){
+                movement -= dist;
+                waypoints.remove(0);
+                currentPos = next;
+            }else{
+                var p = movement / dist;
+                var x = currentPos.x * (1-p) + next.x * p;
+                var y = currentPos.y * (1-p) + next.y * p;
+                currentPos = new Point((int)Math.floor(x), (int)Math.floor(y));
+                movement = 0;
+            }
+        }
+        return currentPos;
+    }
+
+    @Test
+    void stepAlongMatchesNaiveWalk(){
+        var random = new Random(42);
+        var step = new Simulation.Step();
+        for(var run = 0; run < 10000; run++){
+            var start = new Point(random.nextInt(2000) - 1000, random.nextInt(2000) - 1000);
+            var route = new WaypointPath();
+            var points = new ArrayList<Point>();
+            var n = random.nextInt(12);
+            for(var i = 0; i < n; i++){
+                // repeated points give zero length legs
+                var x = random.nextInt(8) == 0 && i > 0 ? points.get(i - 1).x : random.nextInt(2000) - 1000;
+                var y = random.nextInt(8) == 0 && i > 0 ? points.get(i - 1).y : random.nextInt(2000) - 1000;
+                route.add(x, y);
+                points.add(new Point(x, y));
+            }
+            var movement = random.nextInt(4) == 0 ? 0 : random.nextDouble() * 3000;
+
+            Simulation.stepAlong(start.x, start.y, route, movement, step);
+            var expected = naiveWalk(start, points, movement);
+
+            assertEquals(expected, step.position(), "run " + run);
+            assertEquals(n - points.size(), step.consumed, "run " + run);
+            assertEquals(n, route.size(), "stepAlong must not touch the route");
+        }
+    }
+
+    @Test
+    void stepAlongStopsOnWaypointWhenMovementRunsOutThere(){
+        var route = new WaypointPath();
+        route.add(3, 4);
+        route.add(3, 14);
+        var step = new Simulation.Step();
+        Simulation.stepAlong(0, 0, route, 5, step);
+        assertEquals(new Point(3, 4), step.position());
+        assertEquals(1, step.consumed);
+    }
+}
@@ -0,0 +1,100 @@
+package yyz;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialGridTest {
+    private static final int CELL_SIZE = 64;
+
+    private static HashSet<Point> candidates(SpatialGrid<Point> grid, double x, double y, double range){
+        var result = new HashSet<Point>();
+        grid.forEachCandidate(x, y, range, result::add);
+        return result;
+    }
+
+    // Every item within `range` of the center must be a candidate, whether the grid walks the covered cells or,
+    // for huge ranges, its buckets. Candidates may lie farther, but never outside the cells the square touches.
+    @Test
+    void candidatesCoverTheRange(){
+        var random = new Random(5);
+        var grid = new SpatialGrid<Point>(CELL_SIZE);
+        var items = new ArrayList<Point>();
+        for(var i = 0; i < 2000; i++){
+            var p = new Point(random.nextInt(4000) - 2000, random.nextInt(4000) - 2000);
+            items.add(p);
+            grid.put(p, p.x, p.y);
+        }
+        for(var query = 0; query < 500; query++){
+            var x = random.nextInt(4000) - 2000;
+            var y = random.nextInt(4000) - 2000;
+            var range = query % 10 == 0 ? 100000 : random.nextInt(300);
+            var found = candidates(grid, x, y, range);
+            for(var p : items){
+                if(Simulation.inRange(x, y, range, p.x, p.y)){
+                    assertTrue(found.contains(p), p + " within " + range + " of " + x + "," + y);
+                }
+            }
+            for(var p : found){
+                assertTrue(Math.abs(p.x - x) < range + CELL_SIZE && Math.abs(p.y - y) < range + CELL_SIZE, p + " too far");
+            }
+        }
+    }
+
+    @Test
+    void negativeCoordinatesShareNoCellWithPositive(){
+        var grid = new SpatialGrid<Point>(CELL_SIZE);
+        var negative = new Point(-1, -1);
+        grid.put(negative, negative.x, negative.y);
+        assertTrue(candidates(grid, 10, 10, 0).isEmpty());
+        assertTrue(candidates(grid, -10, -10, 0).contains(negative));
+    }
+
+    @Test
+    void putMovesAndRemoveDrops(){
+        var grid = new SpatialGrid<Point>(CELL_SIZE);
+        var p = new Point(0, 0);
+        assertTrue(grid.put(p, 0, 0));
+        assertFalse(grid.put(p, 10, 10)); // same cell
+        assertTrue(grid.put(p, 1000, 1000));
+        assertEquals(1, grid.size());
+        assertTrue(candidates(grid, 0, 0, 10).isEmpty());
+        assertTrue(candidates(grid, 1000, 1000, 10).contains(p));
+
+        grid.remove(p);
+        assertFalse(grid.contains(p));
+        assertTrue(grid.isEmpty());
+        assertTrue(candidates(grid, 1000, 1000, 100000).isEmpty());
+        grid.remove(p); // removing twice is harmless
+    }
+
+    @Test
+    void itemsAreKeptByIdentity(){
+        var grid = new SpatialGrid<Point>(CELL_SIZE);
+        var a = new Point(5, 5);
+        var b = new Point(5, 5); // equal, but another item
+        grid.put(a, a.x, a.y);
+        grid.put(b, b.x, b.y);
+        assertEquals(2, grid.size());
+        grid.remove(a);
+        var left = new IdentityHashMap<Point, Boolean>();
+        grid.forEachCandidate(5, 5, 1, p -> left.put(p, true));
+        assertEquals(1, left.size());
+        assertTrue(left.containsKey(b));
+    }
+
+    @Test
+    void negativeRangeFindsNothing(){
+        var grid = new SpatialGrid<Point>(CELL_SIZE);
+        grid.put(new Point(), 0, 0);
+        assertTrue(candidates(grid, 0, 0, -1).isEmpty());
+    }
+}
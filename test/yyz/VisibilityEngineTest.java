@@ -0,0 +1,80 @@
+package yyz;
+
+import VASSAL.build.module.Map;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Hideable;
+import VASSAL.counters.Marker;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VisibilityEngineTest {
+    private final Map map = new Map();
+    private final HashMap<String, GamePiece> pieces = new HashMap<>();
+
+    // BasicPiece <- Marker("Side") <- AircraftSheet on `map`. The position is set below the sheet, so the piece stays
+    // out of AircraftIndex and the engine finds no relations but the ones a test hands it.
+    private AircraftSheet aircraft(String name, String side, int range, int x, int y, String hiddenBy){
+        var marker = new Marker(Marker.ID + "Side", new BasicPiece(BasicPiece.ID + ";;;;" + name));
+        marker.mySetState(side);
+        marker.setMap(map);
+        marker.setPosition(new Point(x, y));
+        var sheet = new AircraftSheet(AircraftSheet.ID, marker);
+        sheet.setId(name);
+        sheet.mediumDetectionRange = range;
+        sheet.setProperty(Hideable.HIDDEN_BY, hiddenBy);
+        pieces.put(name, sheet);
+        return sheet;
+    }
+
+    private static Object hiddenBy(AircraftSheet sheet){
+        return Decorator.getOutermost(sheet).getProperty(Hideable.HIDDEN_BY);
+    }
+
+    // A hidden aircraft passed on the way is shown for the move, then hidden again by the next refresh as nobody sees
+    // it at the end. One still in range at the end stays revealed.
+    @Test
+    void targetsPassedOnTheWayAreHiddenAgain(){
+        var engine = new VisibilityEngine();
+        var fighter = aircraft("fighter", "Blue", 100, 0, 0, null);
+        var passedBy = aircraft("bomber", "Red", 100, 1000, 0, "red");
+        var stillSeen = aircraft("scout", "Red", 100, 50, 0, "red");
+
+        var moves = new VisibilityEngine.Moves();
+        moves.moved.add(fighter);
+        moves.spotted.add(passedBy);
+        moves.spotted.add(stillSeen);
+        moves.observers.add(fighter);
+        moves.targets.add(stillSeen);
+        var passed = new ArrayList<String>();
+        var revealed = new ArrayList<String>();
+        var lost = new ArrayList<String>();
+        engine.refresh(pieces::get, moves, passed, revealed, lost);
+
+        assertEquals(List.of("bomber", "scout"), passed);
+        assertEquals(List.of(), revealed);
+        assertEquals(List.of(), lost);
+        assertNull(hiddenBy(passedBy));
+        assertEquals("red", passedBy.concealedBy);
+        assertNull(hiddenBy(stillSeen));
+
+        passed.clear();
+        engine.refresh(pieces::get, new VisibilityEngine.Moves(), passed, revealed, lost);
+
+        assertEquals(List.of(), passed);
+        assertEquals(List.of(), revealed);
+        assertEquals(List.of("bomber"), lost);
+        assertEquals("red", hiddenBy(passedBy));
+        assertNull(passedBy.concealedBy);
+        assertNull(hiddenBy(stillSeen));
+        assertEquals("red", stillSeen.concealedBy);
+    }
+}
@@ -0,0 +1,103 @@
+package yyz;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaypointCodecTest {
+    private static void assertRoundTrip(WaypointPath path){
+        var decoded = new WaypointPath();
+        WaypointCodec.decode(WaypointCodec.encode(path), decoded);
+        assertEquals(path.size(), decoded.size());
+        for(var i = 0; i < path.size(); i++){
+            assertEquals(path.x(i), decoded.x(i), "x of point " + i);
+            assertEquals(path.y(i), decoded.y(i), "y of point " + i);
+        }
+    }
+
+    @Test
+    void emptyPath(){
+        assertEquals("", WaypointCodec.encode(new WaypointPath()));
+        assertRoundTrip(new WaypointPath());
+    }
+
+    @Test
+    void negativeDeltasAndCoordinates(){
+        var path = new WaypointPath();
+        path.add(100, 100);
+        path.add(-1, 50);      // both deltas negative
+        path.add(-500, -2);
+        path.add(-500, -2);    // zero deltas
+        path.add(0, 0);
+        path.add(Integer.MAX_VALUE, Integer.MIN_VALUE);
+        path.add(Integer.MIN_VALUE, Integer.MAX_VALUE); // deltas that overflow int, wrapped back on decode
+        assertRoundTrip(path);
+    }
+
+    @Test
+    void randomPaths(){
+        var random = new Random(7);
+        for(var run = 0; run < 2000; run++){
+            var path = new WaypointPath();
+            var n = random.nextInt(50);
+            var spread = 1 << random.nextInt(24);
+            for(var i = 0; i < n; i++){
+                path.add(random.nextInt(2 * spread) - spread, random.nextInt(2 * spread) - spread);
+            }
+            assertRoundTrip(path);
+        }
+    }
+
+    @Test
+    void decodeAppends(){
+        var path = new WaypointPath();
+        path.add(-3, 7);
+        var out = new WaypointPath();
+        out.add(1, 1);
+        WaypointCodec.decode(WaypointCodec.encode(path), out);
+        assertEquals(2, out.size());
+        assertEquals(-3, out.x(1));
+        assertEquals(7, out.y(1));
+    }
+
+    @Test
+    void damagedStrings(){
+        var path = new WaypointPath();
+        path.add(1000, -1000);
+        var encoded = WaypointCodec.encode(path);
+        assertThrows(IllegalArgumentException.class, () -> WaypointCodec.decode(encoded.substring(0, encoded.length() - 1), new WaypointPath()));
+        assertThrows(IllegalArgumentException.class, () -> WaypointCodec.decode("A;B", new WaypointPath()));
+    }
+
+    // The original `count;x;y;...` form, as the sheet wrote it before WaypointCodec.
+    private static String legacy(WaypointPath path){
+        var sb = new StringBuilder().append(path.size());
+        for(var i = 0; i < path.size(); i++){
+            sb.append(';').append(path.x(i)).append(';').append(path.y(i));
+        }
+        return sb.toString();
+    }
+
+    // Same routes as WaypointFormatBenchmark, which compares the speed: legs of up to 200 units from (2000, 2000).
+    @Test
+    void lessThanHalfTheOriginalLength(){
+        for(var n : new int[]{10, 100, 1000}){
+            var random = new Random(42);
+            var path = new WaypointPath(n);
+            var x = 2000;
+            var y = 2000;
+            for(var i = 0; i < n; i++){
+                x += random.nextInt(401) - 200;
+                y += random.nextInt(401) - 200;
+                path.add(x, y);
+            }
+            var compact = WaypointCodec.encode(path).length();
+            var original = legacy(path).length();
+            assertTrue(2 * compact < original, n + " waypoints: " + compact + " chars against " + original);
+        }
+    }
+}
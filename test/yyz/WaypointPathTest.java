@@ -0,0 +1,174 @@
+package yyz;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaypointPathTest {
+    private static WaypointPath path(int... coordinates){
+        var path = new WaypointPath(1);
+        for(var i = 0; i < coordinates.length; i += 2){
+            path.add(coordinates[i], coordinates[i + 1]);
+        }
+        return path;
+    }
+
+    private static void assertPoints(List<Point> expected, WaypointPath path){
+        assertEquals(expected.size(), path.size());
+        for(var i = 0; i < path.size(); i++){
+            assertEquals(expected.get(i), new Point(path.x(i), path.y(i)), "point " + i);
+        }
+    }
+
+    // Every operation against the List<Point> the sheet used before, interleaved so the head cursor, the reuse of
+    // consumed space and the growth paths all run.
+    @Test
+    void matchesAListOfPoints(){
+        var random = new Random(11);
+        var path = new WaypointPath(2);
+        var expected = new ArrayList<Point>();
+        for(var op = 0; op < 20000; op++){
+            switch(random.nextInt(6)){
+                case 0:
+                case 1:
+                    var x = random.nextInt(2000) - 1000;
+                    var y = random.nextInt(2000) - 1000;
+                    path.add(x, y);
+                    expected.add(new Point(x, y));
+                    break;
+                case 2:
+                    var consumed = random.nextInt(4);
+                    path.consume(consumed);
+                    expected.subList(0, Math.min(consumed, expected.size())).clear();
+                    break;
+                case 3:
+                    var retracted = random.nextInt(4);
+                    path.retract(retracted);
+                    expected.subList(Math.max(0, expected.size() - retracted), expected.size()).clear();
+                    break;
+                case 4:
+                    var front = path(random.nextInt(100), random.nextInt(100), random.nextInt(100), random.nextInt(100));
+                    path.prepend(front);
+                    expected.add(0, new Point(front.x(1), front.y(1)));
+                    expected.add(0, new Point(front.x(0), front.y(0)));
+                    break;
+                default:
+                    var other = path(1, 2, 3, 4, 5, 6);
+                    other.consume(1);
+                    path.addAll(other);
+                    expected.add(new Point(3, 4));
+                    expected.add(new Point(5, 6));
+            }
+            assertPoints(expected, path);
+        }
+    }
+
+    @Test
+    void consumeAndRetractStopAtTheEnds(){
+        var path = path(1, 1, 2, 2, 3, 3);
+        path.consume(10);
+        assertTrue(path.isEmpty());
+        path = path(1, 1, 2, 2, 3, 3);
+        path.retract(10);
+        assertTrue(path.isEmpty());
+        path.add(4, 4); // the emptied buffer is reused from the start
+        assertPoints(List.of(new Point(4, 4)), path);
+    }
+
+    @Test
+    void copiesAreIndependent(){
+        var path = path(1, 1, 2, 2, 3, 3);
+        path.consume(1);
+        var copy = path.copy();
+        var range = path.copyRange(1, 2);
+        path.add(9, 9);
+        path.consume(1);
+        assertPoints(List.of(new Point(2, 2), new Point(3, 3)), copy);
+        assertPoints(List.of(new Point(3, 3)), range);
+    }
+
+    @Test
+    void everyChangeBumpsTheVersion(){
+        var path = new WaypointPath();
+        List<Runnable> changes = List.of(() -> path.add(1, 1), () -> path.addAll(path(2, 2)), () -> path.prepend(path(0, 0)),
+                () -> path.consume(1), () -> path.retract(1), path::clear);
+        for(var change : changes){
+            var before = path.version();
+            change.run();
+            assertNotEquals(before, path.version());
+        }
+    }
+
+    @Test
+    void boundsFollowChanges(){
+        var path = path(5, -3, -2, 7, 1, 1);
+        assertEquals(new Rectangle(-2, -3, 7, 10), path.bounds());
+        path.consume(2);
+        assertEquals(new Rectangle(1, 1, 0, 0), path.bounds());
+        path.clear();
+        assertEquals(new Rectangle(), path.bounds());
+    }
+
+    @Test
+    void simplifyDropsPointsOnTheWayButKeepsCorners(){
+        assertPoints(List.of(new Point(40, 0)), path(10, 0, 20, 1, 30, -2, 40, 0).simplify(0, 0, 3));
+        assertPoints(List.of(new Point(100, 0), new Point(100, 100)),
+                path(50, 0, 100, 0, 100, 50, 100, 100).simplify(0, 0, 3));
+        // The start anchors the first leg: seen from (0, 100) the first point is a corner.
+        assertPoints(List.of(new Point(50, 0), new Point(100, 100)), path(50, 0, 100, 100).simplify(0, 100, 3));
+    }
+
+    @Test
+    void simplifyWithoutToleranceKeepsEveryPoint(){
+        var route = path(10, 0, 20, 0, 30, 0);
+        var copy = route.simplify(0, 0, 0);
+        assertEquals(3, copy.size());
+        copy.clear();
+        assertEquals(3, route.size());
+    }
+
+    // Every dropped point lies within the tolerance of the simplified route, whose points are a subsequence of the
+    // original ending with its last point.
+    @Test
+    void simplifiedRoutesStayWithinTheTolerance(){
+        var random = new Random(25);
+        for(var round = 0; round < 200; round++){
+            var route = new WaypointPath(1);
+            var x = 0;
+            var y = 0;
+            for(var i = random.nextInt(60); i >= 0; i--){
+                x += random.nextInt(41) - 10;
+                y += random.nextInt(41) - 20;
+                route.add(x, y);
+            }
+            var tolerance = random.nextInt(20) + 0.5;
+            var simplified = route.simplify(0, 0, tolerance);
+            var size = route.size();
+
+            assertTrue(simplified.size() >= 1 && simplified.size() <= size);
+            assertEquals(route.x(size - 1), simplified.x(simplified.size() - 1));
+            assertEquals(route.y(size - 1), simplified.y(simplified.size() - 1));
+            var next = 0;
+            for(var i = 0; i < size; i++){
+                if(next < simplified.size() && route.x(i) == simplified.x(next) && route.y(i) == simplified.y(next)){
+                    next++;
+                    continue;
+                }
+                var nearest = Double.MAX_VALUE;
+                for(var j = 0; j < simplified.size(); j++){
+                    double ax = j == 0 ? 0 : simplified.x(j - 1), ay = j == 0 ? 0 : simplified.y(j - 1);
+                    nearest = Math.min(nearest, WaypointPath.distanceToSegment(route.x(i), route.y(i), ax, ay, simplified.x(j), simplified.y(j)));
+                }
+                assertTrue(nearest <= tolerance, "point " + i + " is " + nearest + " off the route");
+            }
+            assertEquals(simplified.size(), next, "not a subsequence");
+        }
+    }
+}